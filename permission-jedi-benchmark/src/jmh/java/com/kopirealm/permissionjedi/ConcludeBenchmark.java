@@ -0,0 +1,34 @@
+package com.kopirealm.permissionjedi;
+
+import android.Manifest;
+import android.app.Activity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The {@code preRequest} reordering done by {@code execute()} before every launch.
+ */
+@State(Scope.Thread)
+public class ConcludeBenchmark {
+
+    private PermissionJedi jedi;
+
+    @Setup
+    public void setup() {
+        jedi = PermissionJedi.init(new Activity())
+                .addPermissions(
+                        Manifest.permission.WRITE_EXTERNAL_STORAGE,
+                        Manifest.permission.READ_EXTERNAL_STORAGE,
+                        Manifest.permission.ACCESS_FINE_LOCATION,
+                        Manifest.permission.ACCESS_COARSE_LOCATION)
+                .checkNotifications();
+    }
+
+    @Benchmark
+    public String[] concludePermissions() {
+        return jedi.concludePermissions();
+    }
+}
@@ -0,0 +1,58 @@
+package com.kopirealm.permissionjedi;
+
+import android.Manifest;
+import android.os.Parcel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * {@link PermissionJediKit} round trips: Java serialization with {@code renounce()}, and the
+ * compact Parcelable used for process-death restore.
+ */
+@State(Scope.Thread)
+public class KitBenchmark {
+
+    private PermissionJediKit kit;
+
+    @Setup
+    public void setup() {
+        kit = new PermissionJediKit();
+        kit.setAction(PermissionJedi.ACTION_REQUEST);
+        kit.setSessionId(1);
+        kit.setPermissions(new String[]{
+                PermissionJedi.permission.LOCAL_NOTIFICATION,
+                Manifest.permission.WRITE_EXTERNAL_STORAGE,
+                Manifest.permission.READ_EXTERNAL_STORAGE,
+                Manifest.permission.ACCESS_FINE_LOCATION,
+                Manifest.permission.ACCESS_COARSE_LOCATION});
+    }
+
+    @Benchmark
+    public PermissionJediKit serializedRoundTrip() throws IOException, ClassNotFoundException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(kit.serialized());
+        out.close();
+        final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return PermissionJediKit.renounce((java.io.Serializable) in.readObject());
+    }
+
+    @Benchmark
+    public PermissionJediKit parcelRoundTrip() {
+        final Parcel parcel = Parcel.obtain();
+        kit.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        final PermissionJediKit restored = PermissionJediKit.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+        return restored;
+    }
+}
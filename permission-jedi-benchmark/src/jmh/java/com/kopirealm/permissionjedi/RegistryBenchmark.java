@@ -0,0 +1,61 @@
+package com.kopirealm.permissionjedi;
+
+import android.Manifest;
+import android.app.Activity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+
+/**
+ * Strict-mode validation: {@code getDeviceAndroidPermissions()} and {@code hasValidPermissions()},
+ * against the per-call reflective scan they replaced.
+ */
+@State(Scope.Thread)
+public class RegistryBenchmark {
+
+    private PermissionJedi jedi;
+
+    @Setup
+    public void setup() {
+        jedi = PermissionJedi.init(new Activity())
+                .checkPermissionStrictly()
+                .checkNotifications()
+                .addPermissions(
+                        Manifest.permission.WRITE_EXTERNAL_STORAGE,
+                        Manifest.permission.READ_EXTERNAL_STORAGE,
+                        Manifest.permission.ACCESS_FINE_LOCATION,
+                        Manifest.permission.ACCESS_COARSE_LOCATION);
+    }
+
+    @Benchmark
+    public HashSet<String> deviceAndroidPermissions() {
+        return jedi.getDeviceAndroidPermissions();
+    }
+
+    @Benchmark
+    public boolean hasValidPermissions() {
+        return jedi.hasValidPermissions();
+    }
+
+    @Benchmark
+    public int registryIndexOf() {
+        return PermissionJediRegistry.get().indexOf(Manifest.permission.ACCESS_FINE_LOCATION);
+    }
+
+    @Benchmark
+    public HashSet<String> reflectiveScanBaseline() throws IllegalAccessException {
+        final HashSet<String> androidPermissions = new HashSet<>();
+        for (Field field : Manifest.permission.class.getFields()) {
+            String permission = (String) field.get("");
+            if (permission.startsWith("android.permission")) {
+                androidPermissions.add(permission);
+            }
+        }
+        return androidPermissions;
+    }
+}
@@ -0,0 +1,64 @@
+package com.kopirealm.permissionjedi;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+
+/**
+ * Result construction in {@code checkPermission} and {@code onRequestPermissionsResult}, and the
+ * {@code HashMap} built for legacy delegates.
+ */
+@State(Scope.Thread)
+public class ResultBenchmark {
+
+    private final Context context = new Context();
+    private final String[] permissions = new String[]{
+            PermissionJedi.permission.LOCAL_NOTIFICATION,
+            Manifest.permission.WRITE_EXTERNAL_STORAGE,
+            Manifest.permission.READ_EXTERNAL_STORAGE,
+            Manifest.permission.ACCESS_FINE_LOCATION,
+            Manifest.permission.ACCESS_COARSE_LOCATION};
+    private final int[] grantResults = new int[]{
+            PackageManager.PERMISSION_GRANTED,
+            PackageManager.PERMISSION_DENIED,
+            PackageManager.PERMISSION_GRANTED,
+            PackageManager.PERMISSION_GRANTED,
+            PackageManager.PERMISSION_DENIED};
+    private PermissionJediResult result;
+
+    @Setup
+    public void setup() {
+        result = PermissionJediResult.fromGrantResults(permissions, grantResults);
+    }
+
+    @Benchmark
+    public PermissionJediResult checkPermission() {
+        return PermissionJediInspector.checkPermission(context, permissions);
+    }
+
+    @Benchmark
+    public PermissionJediResult fromGrantResults() {
+        return PermissionJediResult.fromGrantResults(permissions, grantResults);
+    }
+
+    @Benchmark
+    public int walkDenied() {
+        int denied = 0;
+        for (int i = result.nextDenied(0); i >= 0; i = result.nextDenied(i + 1)) {
+            denied++;
+        }
+        return denied;
+    }
+
+    @Benchmark
+    public HashMap<String, Boolean> legacyMap() {
+        return result.toMap();
+    }
+}
@@ -0,0 +1,18 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android;
+
+public final class R {
+    public static final class attr {
+        public static final int windowBackground = 0x01010054;
+        public static final int windowIsTranslucent = 0x01010058;
+    }
+
+    public static final class string {
+        public static final int cancel = 0x01040000;
+        public static final int ok = 0x0104000a;
+    }
+}
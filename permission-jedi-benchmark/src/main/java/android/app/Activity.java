@@ -0,0 +1,84 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.app;
+
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.os.Bundle;
+
+public class Activity extends ContextWrapper {
+    private final Application application;
+    private Intent intent = new Intent();
+    private boolean finishing = false;
+    private boolean destroyed = false;
+    private final FragmentManager fragmentManager = new FragmentManager(this);
+
+    public Activity() {
+        this(new Application());
+    }
+
+    public Activity(Application application) {
+        this.application = application;
+    }
+
+    public final Application getApplication() {
+        return application;
+    }
+
+    @Override
+    public android.content.Context getApplicationContext() {
+        return application;
+    }
+
+    public Intent getIntent() {
+        return intent;
+    }
+
+    public void setIntent(Intent intent) {
+        this.intent = intent;
+    }
+
+    public void finish() {
+        finishing = true;
+    }
+
+    public boolean isFinishing() {
+        return finishing;
+    }
+
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    protected void onCreate(Bundle savedInstanceState) {
+    }
+
+    protected void onSaveInstanceState(Bundle outState) {
+    }
+
+    protected void onRestoreInstanceState(Bundle savedInstanceState) {
+    }
+
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+    }
+
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+    }
+
+    protected void onDestroy() {
+        destroyed = true;
+    }
+
+    public void startActivityForResult(Intent intent, int requestCode) {
+    }
+
+    public final void requestPermissions(String[] permissions, int requestCode) {
+    }
+
+    public FragmentManager getFragmentManager() {
+        return fragmentManager;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.app;
+
+import android.content.Context;
+import android.content.DialogInterface;
+
+public class AlertDialog implements DialogInterface {
+    public static class Builder {
+        public Builder(Context context) {
+        }
+
+        public Builder setMessage(CharSequence message) {
+            return this;
+        }
+
+        public Builder setPositiveButton(CharSequence text, OnClickListener listener) {
+            return this;
+        }
+
+        public Builder setNegativeButton(CharSequence text, OnClickListener listener) {
+            return this;
+        }
+
+        public Builder setCancelable(boolean cancelable) {
+            return this;
+        }
+
+        public AlertDialog show() {
+            return new AlertDialog();
+        }
+    }
+}
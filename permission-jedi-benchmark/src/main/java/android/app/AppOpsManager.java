@@ -0,0 +1,22 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.app;
+
+public class AppOpsManager {
+    public interface OnOpChangedListener {
+        void onOpChanged(String op, String packageName);
+    }
+
+    public static String permissionToOp(String permission) {
+        return null;
+    }
+
+    public void startWatchingMode(String op, String packageName, OnOpChangedListener callback) {
+    }
+
+    public void stopWatchingMode(OnOpChangedListener callback) {
+    }
+}
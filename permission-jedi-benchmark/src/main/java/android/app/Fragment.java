@@ -0,0 +1,70 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.app;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+public class Fragment {
+    Activity activity;
+    FragmentManager fragmentManager;
+    boolean removing = false;
+    private Bundle arguments;
+    private boolean retainInstance = false;
+
+    public void setArguments(Bundle arguments) {
+        this.arguments = arguments;
+    }
+
+    public final Bundle getArguments() {
+        return arguments;
+    }
+
+    public void setRetainInstance(boolean retain) {
+        this.retainInstance = retain;
+    }
+
+    public final boolean getRetainInstance() {
+        return retainInstance;
+    }
+
+    public final Activity getActivity() {
+        return activity;
+    }
+
+    public final FragmentManager getFragmentManager() {
+        return fragmentManager;
+    }
+
+    public final boolean isAdded() {
+        return activity != null && !removing;
+    }
+
+    public final boolean isRemoving() {
+        return removing;
+    }
+
+    public void onCreate(Bundle savedInstanceState) {
+    }
+
+    public void onSaveInstanceState(Bundle outState) {
+    }
+
+    public void onActivityResult(int requestCode, int resultCode, Intent data) {
+    }
+
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+    }
+
+    public void onDestroy() {
+    }
+
+    public void startActivityForResult(Intent intent, int requestCode) {
+    }
+
+    public final void requestPermissions(String[] permissions, int requestCode) {
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.app;
+
+import java.util.LinkedHashMap;
+
+public class FragmentManager {
+    private final Activity activity;
+    private final LinkedHashMap<String, Fragment> added = new LinkedHashMap<>();
+
+    FragmentManager(Activity activity) {
+        this.activity = activity;
+    }
+
+    public FragmentTransaction beginTransaction() {
+        return new FragmentTransaction(this);
+    }
+
+    public Fragment findFragmentByTag(String tag) {
+        return added.get(tag);
+    }
+
+    void add(Fragment fragment, String tag) {
+        added.put(tag, fragment);
+        fragment.activity = activity;
+        fragment.fragmentManager = this;
+        fragment.onCreate(null);
+    }
+
+    void remove(Fragment fragment) {
+        added.values().remove(fragment);
+        fragment.removing = true;
+        fragment.onDestroy();
+        fragment.activity = null;
+        fragment.fragmentManager = null;
+    }
+}
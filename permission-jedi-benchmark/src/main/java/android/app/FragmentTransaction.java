@@ -0,0 +1,48 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.app;
+
+import java.util.ArrayList;
+
+public class FragmentTransaction {
+    private final FragmentManager manager;
+    private final ArrayList<Runnable> ops = new ArrayList<>();
+
+    FragmentTransaction(FragmentManager manager) {
+        this.manager = manager;
+    }
+
+    public FragmentTransaction add(final Fragment fragment, final String tag) {
+        ops.add(new Runnable() {
+            @Override
+            public void run() {
+                manager.add(fragment, tag);
+            }
+        });
+        return this;
+    }
+
+    public FragmentTransaction remove(final Fragment fragment) {
+        ops.add(new Runnable() {
+            @Override
+            public void run() {
+                manager.remove(fragment);
+            }
+        });
+        return this;
+    }
+
+    public int commit() {
+        return commitAllowingStateLoss();
+    }
+
+    public int commitAllowingStateLoss() {
+        for (Runnable op : ops) {
+            op.run();
+        }
+        return 0;
+    }
+}
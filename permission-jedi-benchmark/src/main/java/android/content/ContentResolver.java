@@ -0,0 +1,25 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.content;
+
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Bundle;
+
+public class ContentResolver {
+    public final Bundle call(Uri uri, String method, String arg, Bundle extras) {
+        return null;
+    }
+
+    public void notifyChange(Uri uri, ContentObserver observer) {
+    }
+
+    public final void registerContentObserver(Uri uri, boolean notifyForDescendants, ContentObserver observer) {
+    }
+
+    public final void unregisterContentObserver(ContentObserver observer) {
+    }
+}
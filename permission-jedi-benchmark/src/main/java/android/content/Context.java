@@ -0,0 +1,62 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.content;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+
+public class Context {
+    public static final String APP_OPS_SERVICE = "appops";
+
+    private final PackageManager packageManager = new PackageManager();
+    private final ApplicationInfo applicationInfo = new ApplicationInfo();
+    private final Resources resources = new Resources();
+    private final ContentResolver contentResolver = new ContentResolver();
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public String getPackageName() {
+        return "com.kopirealm.permissionjedi.benchmark";
+    }
+
+    public PackageManager getPackageManager() {
+        return packageManager;
+    }
+
+    public ApplicationInfo getApplicationInfo() {
+        return applicationInfo;
+    }
+
+    public ContentResolver getContentResolver() {
+        return contentResolver;
+    }
+
+    public java.io.File getFilesDir() {
+        return new java.io.File(System.getProperty("java.io.tmpdir"));
+    }
+
+    public Resources getResources() {
+        return resources;
+    }
+
+    public Object getSystemService(String name) {
+        return null;
+    }
+
+    public String getString(int resId) {
+        return String.valueOf(resId);
+    }
+
+    public int checkPermission(String permission, int pid, int uid) {
+        return PackageManager.PERMISSION_GRANTED;
+    }
+
+    public void startActivity(Intent intent) {
+    }
+}
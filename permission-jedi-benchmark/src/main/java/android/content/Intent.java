@@ -0,0 +1,51 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.content;
+
+import android.net.Uri;
+import android.os.Bundle;
+
+public class Intent {
+    public static final String CATEGORY_DEFAULT = "android.intent.category.DEFAULT";
+
+    private final Bundle extras = new Bundle();
+
+    public Intent() {
+    }
+
+    public Intent(Context packageContext, Class<?> cls) {
+    }
+
+    public Intent setAction(String action) {
+        return this;
+    }
+
+    public Intent setData(Uri data) {
+        return this;
+    }
+
+    public Intent addCategory(String category) {
+        return this;
+    }
+
+    public Intent putExtra(String name, String value) {
+        return this;
+    }
+
+    public Intent putExtra(String name, int value) {
+        extras.putInt(name, value);
+        return this;
+    }
+
+    public Intent putExtras(Bundle extras) {
+        this.extras.putAll(extras);
+        return this;
+    }
+
+    public Bundle getExtras() {
+        return extras;
+    }
+}
@@ -0,0 +1,10 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.content.pm;
+
+public class ApplicationInfo {
+    public int uid = 10000;
+}
@@ -0,0 +1,21 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.content.pm;
+
+public class PackageInfo {
+    public static final int REQUESTED_PERMISSION_GRANTED = 1 << 1;
+
+    public String packageName;
+    public String[] requestedPermissions = new String[]{
+            "android.permission.ACCESS_FINE_LOCATION",
+            "android.permission.CAMERA",
+            "android.permission.READ_CONTACTS",
+            "android.permission.RECORD_AUDIO"
+    };
+    public int[] requestedPermissionsFlags = new int[]{
+            REQUESTED_PERMISSION_GRANTED, REQUESTED_PERMISSION_GRANTED, 0, REQUESTED_PERMISSION_GRANTED
+    };
+}
@@ -0,0 +1,25 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.content.pm;
+
+public class PackageManager {
+    public static final int PERMISSION_GRANTED = 0;
+    public static final int PERMISSION_DENIED = -1;
+    public static final int GET_PERMISSIONS = 0x00001000;
+
+    public static class NameNotFoundException extends Exception {
+    }
+
+    private final PackageInfo packageInfo = new PackageInfo();
+
+    public PackageInfo getPackageInfo(String packageName, int flags) throws NameNotFoundException {
+        return packageInfo;
+    }
+
+    public boolean isPermissionRevokedByPolicy(String permName, String pkgName) {
+        return false;
+    }
+}
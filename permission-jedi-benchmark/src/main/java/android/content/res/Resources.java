@@ -0,0 +1,22 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.content.res;
+
+public class Resources {
+
+    public final Theme newTheme() {
+        return new Theme();
+    }
+
+    public final class Theme {
+        public void applyStyle(int resId, boolean force) {
+        }
+
+        public TypedArray obtainStyledAttributes(int[] attrs) {
+            return new TypedArray();
+        }
+    }
+}
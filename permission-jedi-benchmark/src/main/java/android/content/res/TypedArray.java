@@ -0,0 +1,11 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.content.res;
+
+public class TypedArray {
+    public void recycle() {
+    }
+}
@@ -0,0 +1,16 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.database;
+
+import android.os.Handler;
+
+public abstract class ContentObserver {
+    public ContentObserver(Handler handler) {
+    }
+
+    public void onChange(boolean selfChange) {
+    }
+}
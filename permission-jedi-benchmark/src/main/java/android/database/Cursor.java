@@ -0,0 +1,9 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.database;
+
+public interface Cursor {
+}
@@ -0,0 +1,16 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.net;
+
+public class Uri {
+    public static Uri fromParts(String scheme, String ssp, String fragment) {
+        return new Uri();
+    }
+
+    public static Uri parse(String uriString) {
+        return new Uri();
+    }
+}
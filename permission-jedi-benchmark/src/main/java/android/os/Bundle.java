@@ -0,0 +1,64 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.os;
+
+import java.io.Serializable;
+import java.util.HashMap;
+
+public class Bundle {
+    private final HashMap<String, Object> values = new HashMap<>();
+
+    public void setClassLoader(ClassLoader loader) {
+    }
+
+    public void putAll(Bundle bundle) {
+        values.putAll(bundle.values);
+    }
+
+    public void putInt(String key, int value) {
+        values.put(key, value);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        final Object value = values.get(key);
+        return (value instanceof Integer) ? (Integer) value : defaultValue;
+    }
+
+    public void putStringArray(String key, String[] value) {
+        values.put(key, value);
+    }
+
+    public String[] getStringArray(String key) {
+        final Object value = values.get(key);
+        return (value instanceof String[]) ? (String[]) value : null;
+    }
+
+    public void putIntArray(String key, int[] value) {
+        values.put(key, value);
+    }
+
+    public int[] getIntArray(String key) {
+        final Object value = values.get(key);
+        return (value instanceof int[]) ? (int[]) value : null;
+    }
+
+    public void putSerializable(String key, Serializable value) {
+        values.put(key, value);
+    }
+
+    public Serializable getSerializable(String key) {
+        return (Serializable) values.get(key);
+    }
+
+    public void putParcelable(String key, Parcelable value) {
+        values.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T getParcelable(String key) {
+        return (T) values.get(key);
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.os;
+
+public class Handler {
+    public Handler() {
+    }
+
+    public Handler(Looper looper) {
+    }
+
+    public final boolean post(Runnable r) {
+        r.run();
+        return true;
+    }
+
+    // Nothing here ever waits, delayed work is dropped
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        if (delayMillis <= 0) {
+            r.run();
+        }
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable r) {
+    }
+}
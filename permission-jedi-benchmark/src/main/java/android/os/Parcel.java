@@ -0,0 +1,93 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.os;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Keeps written values in order and tracks a marshalled byte count close to the real one.
+ */
+public final class Parcel {
+    private final ArrayList<Object> values = new ArrayList<>();
+    private int position = 0;
+    private int dataSize = 0;
+
+    public static Parcel obtain() {
+        return new Parcel();
+    }
+
+    public void recycle() {
+        values.clear();
+        position = 0;
+        dataSize = 0;
+    }
+
+    public int dataSize() {
+        return dataSize;
+    }
+
+    public void setDataPosition(int pos) {
+        position = pos;
+    }
+
+    public void writeInt(int val) {
+        values.add(val);
+        dataSize += 4;
+    }
+
+    public int readInt() {
+        return (Integer) values.get(position++);
+    }
+
+    public void writeLong(long val) {
+        values.add(val);
+        dataSize += 8;
+    }
+
+    public long readLong() {
+        return (Long) values.get(position++);
+    }
+
+    public void writeString(String val) {
+        values.add(val);
+        dataSize += sizeOf(val);
+    }
+
+    public String readString() {
+        return (String) values.get(position++);
+    }
+
+    public void writeLongArray(long[] val) {
+        values.add(val == null ? null : val.clone());
+        dataSize += 4 + (val == null ? 0 : val.length * 8);
+    }
+
+    public long[] createLongArray() {
+        return (long[]) values.get(position++);
+    }
+
+    public void writeStringArray(String[] val) {
+        values.add(val == null ? null : val.clone());
+        dataSize += 4;
+        if (val != null) {
+            for (String s : val) {
+                dataSize += sizeOf(s);
+            }
+        }
+    }
+
+    public String[] createStringArray() {
+        return (String[]) values.get(position++);
+    }
+
+    private static int sizeOf(String val) {
+        // Length prefix, UTF-16 chars and terminator, padded to 4 bytes
+        return (val == null) ? 4 : 4 + (((val.length() + 1) * 2 + 3) & ~3);
+    }
+}
@@ -0,0 +1,13 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.os;
+
+public class Process {
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+    public static final void setThreadPriority(int priority) {
+    }
+}
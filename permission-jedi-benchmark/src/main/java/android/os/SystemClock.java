@@ -0,0 +1,12 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.os;
+
+public final class SystemClock {
+    public static long uptimeMillis() {
+        return System.nanoTime() / 1000000L;
+    }
+}
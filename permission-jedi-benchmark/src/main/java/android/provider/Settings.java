@@ -0,0 +1,13 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.provider;
+
+public final class Settings {
+    public static final String ACTION_APPLICATION_DETAILS_SETTINGS = "android.settings.APPLICATION_DETAILS_SETTINGS";
+    public static final String ACTION_APP_NOTIFICATION_SETTINGS = "android.settings.APP_NOTIFICATION_SETTINGS";
+    public static final String EXTRA_APP_PACKAGE = "android.provider.extra.APP_PACKAGE";
+    public static final String EXTRA_CHANNEL_ID = "android.provider.extra.CHANNEL_ID";
+}
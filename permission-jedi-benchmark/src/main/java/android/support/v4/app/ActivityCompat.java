@@ -0,0 +1,17 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.support.v4.app;
+
+import android.app.Activity;
+
+public class ActivityCompat {
+    public static void requestPermissions(Activity activity, String[] permissions, int requestCode) {
+    }
+
+    public static boolean shouldShowRequestPermissionRationale(Activity activity, String permission) {
+        return false;
+    }
+}
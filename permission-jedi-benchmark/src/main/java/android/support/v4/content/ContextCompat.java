@@ -0,0 +1,14 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.support.v4.content;
+
+import android.content.Context;
+
+public class ContextCompat {
+    public static int checkSelfPermission(Context context, String permission) {
+        return context.checkPermission(permission, 0, context.getApplicationInfo().uid);
+    }
+}
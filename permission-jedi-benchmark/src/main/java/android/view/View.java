@@ -0,0 +1,31 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.view;
+
+import android.content.Context;
+
+public class View {
+    public interface OnClickListener {
+        void onClick(View v);
+    }
+
+    private OnClickListener listener;
+
+    public View(Context context) {
+    }
+
+    public void setOnClickListener(OnClickListener l) {
+        listener = l;
+    }
+
+    public boolean performClick() {
+        if (listener != null) {
+            listener.onClick(this);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,15 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package android.widget;
+
+import android.content.Context;
+import android.view.View;
+
+public class Button extends View {
+    public Button(Context context) {
+        super(context);
+    }
+}
@@ -0,0 +1,11 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package com.kopirealm.permissionjedi;
+
+public final class BuildConfig {
+    public static final boolean DEBUG = false;
+    public static final String VERSION_NAME = "benchmark";
+}
@@ -0,0 +1,19 @@
+/*
+ * JVM stub of the Android API, just enough to compile and run the permission-jedi sources
+ * outside a device. Not shipped.
+ */
+
+package com.kopirealm.permissionjedi;
+
+public final class R {
+    public static final class string {
+        public static final int btn_go_now = 0x7f0b0001;
+        public static final int btn_not_now = 0x7f0b0002;
+        public static final int txt_notification_required = 0x7f0b0003;
+        public static final int txt_permission_required = 0x7f0b0004;
+    }
+
+    public static final class style {
+        public static final int Theme_AppCompat_Translucent = 0x7f0c0001;
+    }
+}
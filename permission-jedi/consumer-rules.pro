@@ -0,0 +1,2 @@
+# Loaded by name at runtime, see permission-table.gradle
+-keep class com.kopirealm.permissionjedi.PermissionJediDeclaredPermissions { public static <fields>; }
@@ -21,36 +21,33 @@
 
 package com.kopirealm.permissionjedi;
 
-import android.Manifest;
 import android.app.Activity;
 import android.app.AlertDialog;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
 
-import java.lang.reflect.Field;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
 
 public class PermissionJedi implements Cloneable {
 
-    public static final boolean DEBUG = true;
+    public static final boolean DEBUG = BuildConfig.DEBUG;
     private static final String versionName = BuildConfig.VERSION_NAME;
-    private static PermissionJedi jediPalace = null;
-
-    synchronized static PermissionJedi getJedi() {
-        if (jediPalace == null) {
-            PermissionJedi.logj("jediPalace == null");
-            jediPalace = new PermissionJedi(null);
-        }
-        return jediPalace;
-    }
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     protected static final class permission {
         public static final String GROUP_ID = "permissionjedi.permission";
@@ -63,15 +60,69 @@ public class PermissionJedi implements Cloneable {
     public static final String ACTION_APP_PERMISSIONS_SETTINGS = "ACTION_APP_PERMISSIONS_SETTINGS";
     public static final String ACTION_APP_NOTIFICATIONS_SETTINGS = "ACTION_APP_NOTIFICATIONS_SETTINGS";
 
-    private Activity activity;
-    private PermissionJediDelegate delegate;
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_DEFAULT = 0;
+    public static final int PRIORITY_HIGH = 10;
+
+    private WeakReference<Activity> activity;
+    private PermissionJediResultDelegate delegate;
     private HashSet<String> permissions = new HashSet<>();
     private boolean strictMode = false;
+    private boolean headless = false;
+    private String onPermanentlyDenied = null;
+    private int priority = PRIORITY_DEFAULT;
+    private long timeout = PermissionJediEngine.getDefaultTimeout();
+    private PermissionJediKit kit = null;
+    private PermissionJediFuture<PermissionJediResult> future = null;
+    // Callers merged into this one's session, see delegation()
+    private PermissionJediCoalescer.Batch batch = null;
+
+    public static PermissionJedi init(Activity activity) {
+        final PermissionJediLifecycle lifecycle = PermissionJediLifecycle.install(activity);
+        lifecycle.addListener(PermissionJediCache.get());
+        lifecycle.addDestroyListener(PermissionJediSessions.reaper());
+        lifecycle.addDestroyListener(PermissionJediScheduler.get());
+        return new PermissionJedi(activity);
+    }
+
+    /**
+     * Opt-in warm up of the permission stack on a background thread, meant for
+     * {@code Application.onCreate()}, so the first flow is as fast as later ones.
+     */
+    public static void prewarm(@NonNull Context context) {
+        PermissionJediPrewarm.start(context);
+    }
+
+    /**
+     * Cheap grant lookup backed by a process-wide cache; only the first call for a permission,
+     * or the first after returning to the foreground, goes to the system.
+     */
+    public static boolean isGranted(@NonNull Context context, @NonNull String permission) {
+        PermissionJediCache.get().watch(context);
+        return PermissionJediInspector.isGranted(context, permission);
+    }
+
+    /**
+     * Grant lookup for processes other than the UI one, answered by {@link PermissionJediProvider}
+     * and held locally until the UI process reports a change.
+     */
+    public static boolean isGrantedShared(@NonNull Context context, @NonNull String permission) {
+        return PermissionJediSharedState.get(context).isGranted(permission);
+    }
 
-    public synchronized static PermissionJedi init(Activity activity) {
-        PermissionJedi jediBaby = new PermissionJedi(activity);
-        jediPalace = jediBaby;
-        return PermissionJedi.getJedi();
+    /**
+     * Install a listener for {@link PermissionJediTrace} events, or null to stop tracing.
+     */
+    public static void setTraceListener(PermissionJediTrace.Listener listener) {
+        PermissionJediTrace.setListener(listener);
+    }
+
+    /**
+     * Observe the given permissions; the observer is called on the main thread, only when a
+     * permission changes. All observers share one underlying watcher.
+     */
+    public static Subscription observe(@NonNull Context context, @NonNull PermissionJediObserver observer, @NonNull String... permissions) {
+        return PermissionJediWatcher.get().subscribe(context, observer, permissions);
     }
 
     public static boolean isAndroidPreM() {
@@ -79,25 +130,149 @@ public class PermissionJedi implements Cloneable {
     }
 
     private PermissionJedi(Activity activity) {
-        this.activity = activity;
+        this.activity = new WeakReference<>(activity);
     }
 
     public PermissionJedi onComplete(PermissionJediDelegate delegate) {
+        this.delegate = (delegate != null) ? new PermissionJediDelegateAdapter(delegate) : null;
+        return this;
+    }
+
+    /**
+     * Like {@link #onComplete(PermissionJediDelegate)}, with the bitset-backed
+     * {@link PermissionJediResult} instead of a map.
+     */
+    public PermissionJedi onResult(PermissionJediResultDelegate delegate) {
         this.delegate = delegate;
         return this;
     }
 
-    PermissionJediDelegate getDelegate() {
+    PermissionJediResultDelegate getDelegate() {
         return delegate;
     }
 
+    @Nullable
+    Activity getActivity() {
+        return activity.get();
+    }
+
+    /**
+     * @return true if this jedi was started by the given Activity, or its Activity is gone
+     */
+    boolean isOwnedBy(@NonNull Activity owner) {
+        final Activity caller = activity.get();
+        return caller == null || caller == owner;
+    }
+
+    PermissionJediKit getKit() {
+        return kit;
+    }
+
+    /**
+     * Requests made within this many milliseconds of each other are merged into a single
+     * system dialog. Zero or less launches every request on its own.
+     */
+    public static void setCoalescingWindow(long millis) {
+        PermissionJediCoalescer.setWindow(millis);
+    }
+
+    /**
+     * A call identical to one in flight within this many milliseconds attaches to its result
+     * instead of launching again. Zero or less launches every call.
+     */
+    public static void setDebounceWindow(long millis) {
+        PermissionJediGate.setWindow(millis);
+    }
+
+    /**
+     * Default for {@link #timeout(long)}, five minutes unless changed.
+     */
+    public static void setSessionTimeout(long millis) {
+        PermissionJediEngine.setDefaultTimeout(millis);
+    }
+
     public PermissionJedi checkPermissionStrictly() {
         this.strictMode = true;
         return this;
     }
 
+    /**
+     * Host the flow in a retained {@link PermissionJediFragment} inside the caller, instead of
+     * launching the translucent {@link PermissionJediActivity}.
+     */
+    public PermissionJedi headless() {
+        this.headless = true;
+        return this;
+    }
+
+    /**
+     * Permissions the user denied with "don't ask again" are answered as denied straight away,
+     * no dialog is launched for them.
+     */
+    public PermissionJedi skipPermanentlyDenied() {
+        this.onPermanentlyDenied = ACTION_REQUEST;
+        return this;
+    }
+
+    /**
+     * Go to the app's permission settings instead of requesting, when any permission was denied
+     * with "don't ask again"; the result is checked on return.
+     */
+    public PermissionJedi gotoSettingsWhenPermanentlyDenied() {
+        this.onPermanentlyDenied = ACTION_APP_PERMISSIONS_SETTINGS;
+        return this;
+    }
+
+    /**
+     * Only one flow runs at a time; while one is running, waiting flows start highest
+     * priority first, see {@link #PRIORITY_DEFAULT}.
+     */
+    public PermissionJedi priority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Give up on the flow this many milliseconds after it starts, zero or less waits forever.
+     * On expiry the delegate gets one last check, with {@link PermissionJediResult#isTimedOut()}.
+     */
+    public PermissionJedi timeout(long millis) {
+        this.timeout = millis;
+        return this;
+    }
+
+    long getTimeout() {
+        return timeout;
+    }
+
+    int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Cancel this jedi's flow if it is still waiting, to be merged with others or for another
+     * flow to finish. A cancelled flow never launches, and its future fails with a
+     * CancellationException; others it was merged with go on without it.
+     *
+     * @return true if the flow was waiting and is now cancelled
+     */
+    public boolean cancel() {
+        if (PermissionJediCoalescer.get().cancel(this) || PermissionJediScheduler.get().cancel(this)) {
+            onSessionClosed();
+            return true;
+        }
+        return false;
+    }
+
+    boolean isHeadless() {
+        return headless;
+    }
+
     public PermissionJedi addPermissions(@NonNull String... permissions) {
-        this.permissions.addAll(Arrays.asList(permissions));
+        final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        for (final String p : permissions) {
+            this.permissions.add(registry.intern(p));
+        }
         return this;
     }
 
@@ -117,32 +292,297 @@ public class PermissionJedi implements Cloneable {
         Log.d("kopihao", PermissionJedi.class.getSimpleName() + ":" + versionName + "\t" + s);
     }
 
-    private void execute(String action) {
+    String[] concludePermissions() throws IllegalAndroidPermissionException {
+        // Verify Permissions Requested
+        if (strictMode) {
+            if (permissions == null || permissions.isEmpty() || (!hasValidPermissions())) {
+                throw new IllegalAndroidPermissionException();
+            }
+        }
+        // Conclude Permissions Requested
+        ArrayList<String> preRequest = new ArrayList<>(Arrays.asList(permissions.toArray(new String[permissions.size()])));
+        if (preRequest.contains(permission.LOCAL_NOTIFICATION)) {
+            preRequest.remove(permission.LOCAL_NOTIFICATION);
+            preRequest.add(0, permission.LOCAL_NOTIFICATION);
+        }
+        return preRequest.toArray(new String[preRequest.size()]);
+    }
+
+    void execute(String action) {
         try {
-            // Verify Permissions Requested
-            if (strictMode) {
-                if (permissions == null || permissions.isEmpty() || (!hasValidPermissions())) {
-                    throw new IllegalAndroidPermissionException();
+            dispatch(action);
+        } catch (IllegalAndroidPermissionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void dispatch(String action) throws IllegalAndroidPermissionException {
+        String[] permits = concludePermissions();
+        if (PermissionJediGate.get().attach(action, permits, this)) {
+            return;
+        }
+        // From here on identical calls attach to this one, also while it waits its turn
+        PermissionJediGate.get().lead(action, permits, this);
+        if (ACTION_REQUEST.equals(action) && onPermanentlyDenied != null) {
+            permits = skipPermanentlyDenied(permits);
+            if (permits == null) {
+                return;
+            }
+        }
+        if (ACTION_REQUEST.equals(action) && PermissionJediCoalescer.getWindow() > 0) {
+            PermissionJediCoalescer.get().enqueue(this, permits);
+        } else {
+            launch(action, permits);
+        }
+    }
+
+    /**
+     * Take permanently denied permissions out of a request, as recorded by
+     * {@link PermissionJediJournal}.
+     *
+     * @return permissions left to request, or null once the request has been answered
+     */
+    private String[] skipPermanentlyDenied(String[] permits) {
+        final Activity activity = getActivity();
+        if (activity == null || isAndroidPreM()) {
+            return permits;
+        }
+        final PermissionJediJournal journal = PermissionJediJournal.get(activity);
+        final ArrayList<String> alive = new ArrayList<>(permits.length);
+        final ArrayList<String> dead = new ArrayList<>();
+        for (final String p : permits) {
+            if (journal.isPermanentlyDenied(p) && !PermissionJediInspector.isGranted(activity, p)) {
+                dead.add(p);
+            } else {
+                alive.add(p);
+            }
+        }
+        if (dead.isEmpty()) {
+            return permits;
+        }
+        if (DEBUG) {
+            logj("skipPermanentlyDenied()::" + dead);
+        }
+        if (ACTION_APP_PERMISSIONS_SETTINGS.equals(onPermanentlyDenied)) {
+            launch(ACTION_APP_PERMISSIONS_SETTINGS, permits);
+            return null;
+        }
+        final PermissionJediResult.Builder denied = new PermissionJediResult.Builder();
+        for (final String p : dead) {
+            denied.put(p, false);
+        }
+        final PermissionJediResultDelegate delegate = this.delegate;
+        // The skipped ones are known right away
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (final String p : dead) {
+                    progress(delegate, p, false);
                 }
             }
-            // Conclude Permissions Requested
-            ArrayList<String> preRequest = new ArrayList<>(Arrays.asList(permissions.toArray(new String[permissions.size()])));
-            if (preRequest.contains(permission.LOCAL_NOTIFICATION)) {
-                preRequest.remove(permission.LOCAL_NOTIFICATION);
-                preRequest.add(0, permission.LOCAL_NOTIFICATION);
+        });
+        if (alive.isEmpty()) {
+            final PermissionJediResult result = denied.build();
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (delegate != null) {
+                        PermissionJediTrace.emit(PermissionJediTrace.Event.DELEGATE_INVOKED, PermissionJediTrace.NO_SESSION);
+                        delegate.onPermissionReviewed(result);
+                    }
+                }
+            });
+            return null;
+        }
+        // The rest still goes through the dialog, its result gets the skipped ones added
+        this.delegate = new PermissionJediProgressDelegate() {
+            @Override
+            public void onPermissionResolved(@NonNull String permission, boolean granted) {
+                progress(delegate, permission, granted);
+            }
+
+            @Override
+            public void onPermissionReviewed(@NonNull PermissionJediResult result) {
+                if (delegate != null) {
+                    delegate.onPermissionReviewed(denied.putAll(result).build());
+                }
             }
-            // Prepare Permission Jedi Kit
-            final PermissionJediKit jediKit = new PermissionJediKit();
-            jediKit.setAction(action);
-            jediKit.setPermissions(preRequest.toArray(new String[preRequest.size()]));
-            // Prework to navigate
-            Bundle extras = new Bundle();
-            extras.putSerializable(PermissionJediKit.EXTRA_KEY, jediKit.serialized());
-            // Prepare to navigate
-            final Intent intent = new Intent(activity, PermissionJediActivity.class);
-            intent.putExtras(extras);
-            activity.startActivity(intent);
+        };
+        return alive.toArray(new String[alive.size()]);
+    }
 
+    private PermissionJediFuture<PermissionJediResult> executeAsync(String action, @NonNull Executor executor) {
+        final PermissionJediFuture<PermissionJediResult> future = new PermissionJediFuture<>(executor);
+        this.future = future;
+        this.delegate = new PermissionJediResultDelegate() {
+            @Override
+            public void onPermissionReviewed(@NonNull PermissionJediResult result) {
+                future.deliver(result);
+            }
+        };
+        try {
+            dispatch(action);
+        } catch (IllegalAndroidPermissionException e) {
+            future.fail(e);
+        }
+        return future;
+    }
+
+    /**
+     * Called once {@link PermissionJediActivity} is gone, a future still waiting by then never
+     * gets its result.
+     */
+    void onSessionClosed() {
+        PermissionJediGate.get().release(this);
+        PermissionJediScheduler.get().finished(this);
+        if (future != null && future.fail(new CancellationException("Jedi Activity Aborted"))) {
+            logj("onSessionClosed()::future abandoned");
+        }
+        final PermissionJediCoalescer.Batch batch = this.batch;
+        this.batch = null;
+        if (batch != null) {
+            for (PermissionJedi participant : batch.callers()) {
+                participant.onSessionClosed();
+            }
+        }
+        // Nothing of the caller is kept once its session is over
+        delegate = null;
+        kit = null;
+    }
+
+    void launch(String action, String[] permits) {
+        PermissionJediScheduler.get().submit(this, action, permits);
+    }
+
+    /**
+     * Open the session and launch its host, once {@link PermissionJediScheduler} lets it run.
+     *
+     * @return false if the caller is already gone and nothing was launched
+     */
+    boolean start(String action, String[] permits) {
+        final Activity activity = getActivity();
+        if (activity == null) {
+            logj("launch()::caller is gone");
+            return false;
+        }
+        final PermissionJediCoalescer.Batch batch = this.batch;
+        if (batch != null) {
+            // Callers may have been withdrawn while this waited its turn
+            permits = batch.permissions();
+            if (permits.length == 0) {
+                return false;
+            }
+        }
+        // Prepare Permission Jedi Kit
+        final PermissionJediKit jediKit = new PermissionJediKit();
+        jediKit.setSessionId(PermissionJediSessions.open(this));
+        PermissionJediTrace.emit(PermissionJediTrace.Event.SESSION_CREATED, jediKit.getSessionId());
+        jediKit.setAction(action);
+        jediKit.setPermissions(permits);
+        this.kit = jediKit;
+        PermissionJediGate.get().launched(this);
+        if (batch != null) {
+            for (PermissionJedi participant : batch.callers()) {
+                PermissionJediGate.get().launched(participant);
+            }
+        }
+        if (headless) {
+            PermissionJediFragment.attach(activity, jediKit.getSessionId());
+            return true;
+        }
+        // Prework to navigate, the kit itself stays in memory with the session
+        Bundle extras = new Bundle();
+        extras.putInt(PermissionJediKit.EXTRA_SESSION_KEY, jediKit.getSessionId());
+        // Prepare to navigate
+        final Intent intent = new Intent(activity, PermissionJediActivity.class);
+        intent.putExtras(extras);
+        activity.startActivity(intent);
+        return true;
+    }
+
+    /**
+     * Jedi on behalf of several callers, used to launch one merged request. The callers'
+     * sessions close along with this one's.
+     */
+    static PermissionJedi delegation(Activity activity, @NonNull PermissionJediCoalescer.Batch batch) {
+        final PermissionJedi jedi = new PermissionJedi(activity);
+        jedi.delegate = batch;
+        jedi.batch = batch;
+        return jedi;
+    }
+
+    @Nullable
+    PermissionJediCoalescer.Batch getBatch() {
+        return batch;
+    }
+
+    /**
+     * Move a merged request off a host being destroyed, onto one of its callers still alive.
+     * The callers of the destroyed Activity are let go, the session goes on for the others.
+     *
+     * @return false if this is no merged request, or none of its callers is left to host it
+     */
+    boolean rehost(@NonNull Activity destroyed) {
+        final PermissionJediCoalescer.Batch batch = this.batch;
+        if (batch == null) {
+            return false;
+        }
+        Activity host = null;
+        final ArrayList<PermissionJedi> gone = new ArrayList<>();
+        for (PermissionJedi participant : batch.callers()) {
+            final Activity activity = participant.getActivity();
+            if (participant.isOwnedBy(destroyed)) {
+                gone.add(participant);
+            } else if (activity != null && !activity.isFinishing()) {
+                host = activity;
+            }
+        }
+        if (host == null) {
+            return false;
+        }
+        this.activity = new WeakReference<>(host);
+        for (PermissionJedi participant : gone) {
+            batch.withdraw(participant);
+            participant.onSessionClosed();
+        }
+        return true;
+    }
+
+    /**
+     * Run {@link #ACTION_CHECK} against the caller's own Context, no Activity is launched.
+     *
+     * @param posted true to deliver once on the next main loop pass, false to deliver right away
+     */
+    private void inspect(boolean posted) {
+        final Activity activity = getActivity();
+        if (activity == null) {
+            logj("inspect()::caller is gone");
+            return;
+        }
+        try {
+            final String[] permits = concludePermissions();
+            final Context context = activity.getApplicationContext();
+            final Runnable inspection = new Runnable() {
+                @Override
+                public void run() {
+                    final PermissionJediResult result = (permits.length == 0)
+                            ? PermissionJediResult.EMPTY
+                            : PermissionJediInspector.checkPermission(context, permits);
+                    PermissionJediTrace.emit(PermissionJediTrace.Event.RESULT_RECEIVED, PermissionJediTrace.NO_SESSION);
+                    if (delegate != null) {
+                        PermissionJediTrace.emit(PermissionJediTrace.Event.DELEGATE_INVOKED, PermissionJediTrace.NO_SESSION);
+                        for (int i = result.nextPermission(0); i >= 0; i = result.nextPermission(i + 1)) {
+                            progress(delegate, result.permissionAt(i), result.isGrantedAt(i));
+                        }
+                        delegate.onPermissionReviewed(result);
+                    }
+                }
+            };
+            if (posted) {
+                mainHandler.post(inspection);
+            } else {
+                inspection.run();
+            }
         } catch (IllegalAndroidPermissionException e) {
             e.printStackTrace();
         }
@@ -157,48 +597,120 @@ public class PermissionJedi implements Cloneable {
         execute(ACTION_APP_NOTIFICATIONS_SETTINGS);
     }
 
+    /**
+     * Check permissions inline and deliver once on the main thread, without launching
+     * {@link PermissionJediActivity}.
+     */
     public void check() {
-        execute(ACTION_CHECK);
+        inspect(true);
+    }
+
+    /**
+     * Check permissions inline and deliver to the delegate before returning.
+     */
+    public void checkNow() {
+        inspect(false);
+    }
+
+    /**
+     * Check permissions on the given executor and complete the future there.
+     * The future takes the place of any delegate given to {@link #onComplete} or {@link #onResult}.
+     */
+    public PermissionJediFuture<PermissionJediResult> check(@NonNull Executor executor) {
+        final PermissionJediFuture<PermissionJediResult> future = new PermissionJediFuture<>(executor);
+        final Activity activity = getActivity();
+        if (activity == null) {
+            future.fail(new CancellationException("Jedi caller is gone"));
+            return future;
+        }
+        try {
+            final String[] permits = concludePermissions();
+            final Context context = activity.getApplicationContext();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete((permits.length == 0)
+                                ? PermissionJediResult.EMPTY
+                                : PermissionJediInspector.checkPermission(context, permits));
+                    } catch (Exception e) {
+                        future.fail(e);
+                    }
+                }
+            });
+        } catch (IllegalAndroidPermissionException e) {
+            future.fail(e);
+        }
+        return future;
     }
 
     public void request() {
         execute(ACTION_REQUEST);
     }
 
+    /**
+     * Request permissions and complete the future on the given executor.
+     * The future takes the place of any delegate given to {@link #onComplete} or {@link #onResult}.
+     */
+    public PermissionJediFuture<PermissionJediResult> request(@NonNull Executor executor) {
+        return executeAsync(ACTION_REQUEST, executor);
+    }
+
     public void isPermissionRevokedByPolicy() {
         execute(ACTION_REVOKE);
     }
 
+    /**
+     * Check revocation by policy and complete the future on the given executor.
+     * The future takes the place of any delegate given to {@link #onComplete} or {@link #onResult}.
+     */
+    public PermissionJediFuture<PermissionJediResult> isPermissionRevokedByPolicy(@NonNull Executor executor) {
+        return executeAsync(ACTION_REVOKE, executor);
+    }
+
     public HashSet<String> getDeviceAndroidPermissions() {
-        final HashSet<String> androidPermissions = new HashSet<>();
-        try {
-            for (Field field : Manifest.permission.class.getFields()) {
-                String permission = (String) field.get("");
-                if (permission.startsWith("android.permission")) {
-                    androidPermissions.add(permission);
+        return PermissionJediRegistry.get().androidPermissions();
+    }
+
+    /**
+     * Against the build-time {@link PermissionJediTable} when the app generated one, so only
+     * permissions the app declares pass; otherwise against every permission this device knows.
+     */
+    boolean hasValidPermissions() {
+        final PermissionJediTable declared = PermissionJediTable.get();
+        if (declared.isAvailable()) {
+            for (final String p : permissions) {
+                if (!p.equals(permission.LOCAL_NOTIFICATION) && !declared.isDeclared(p)) {
+                    return false;
                 }
             }
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
+            return true;
         }
-        return androidPermissions;
-    }
-
-    private boolean hasValidPermissions() {
-        final HashSet<String> androidPermissions = getDeviceAndroidPermissions();
-        final HashSet<String> runtimePermissions = new HashSet<>(permissions);
-        runtimePermissions.remove(permission.LOCAL_NOTIFICATION);
-        if (!androidPermissions.isEmpty() && !androidPermissions.containsAll(runtimePermissions)) {
-            return false;
+        final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        if (registry.isEmpty()) {
+            return true;
+        }
+        for (final String p : permissions) {
+            if (!registry.contains(p)) {
+                return false;
+            }
         }
         return true;
     }
 
     public void showRationaleDialog(@NonNull String rationale, @NonNull String btnPos, @NonNull String btnNeg, @NonNull DialogInterface.OnClickListener diPos, @NonNull DialogInterface.OnClickListener diNeg) {
-        customDialog(rationale, btnPos, btnNeg, diPos, diNeg).show();
+        final AlertDialog.Builder adb = customDialog(rationale, btnPos, btnNeg, diPos, diNeg);
+        if (adb != null) {
+            adb.show();
+        }
     }
 
     public void gotoAppPermissionsSettingsDialog(@NonNull String rationale) {
+        final Activity activity = this.activity.get();
+        if (activity == null) {
+            logj("gotoAppPermissionsSettingsDialog()::caller is gone");
+            return;
+        }
         rationale = (!TextUtils.isEmpty(rationale)) ? rationale : activity.getString(R.string.txt_permission_required);
         this.gotoAppPermissionsSettingsDialog(
                 rationale,
@@ -218,15 +730,28 @@ public class PermissionJedi implements Cloneable {
     }
 
     public void gotoAppPermissionsSettingsDialog(@NonNull String rationale, @NonNull String btnPos, @NonNull String btnNeg, @NonNull DialogInterface.OnClickListener diPos, @NonNull DialogInterface.OnClickListener diNeg) {
-        customDialog(
+        final Activity activity = this.activity.get();
+        if (activity == null) {
+            logj("gotoAppPermissionsSettingsDialog()::caller is gone");
+            return;
+        }
+        final AlertDialog.Builder adb = customDialog(
                 rationale,
                 TextUtils.isEmpty(btnPos) ? activity.getString(R.string.btn_go_now) : btnPos,
                 TextUtils.isEmpty(btnNeg) ? activity.getString(R.string.btn_not_now) : btnNeg,
                 diPos,
-                diNeg).show();
+                diNeg);
+        if (adb != null) {
+            adb.show();
+        }
     }
 
     public void showGotoNotificationsSettingsDialog(@NonNull String rationale) {
+        final Activity activity = this.activity.get();
+        if (activity == null) {
+            logj("showGotoNotificationsSettingsDialog()::caller is gone");
+            return;
+        }
         this.addPermissions(permission.LOCAL_NOTIFICATION);
         rationale = (!TextUtils.isEmpty(rationale)) ? rationale : activity.getString(R.string.txt_notification_required);
         this.showGotoNotificationsSettingsDialog(
@@ -247,15 +772,32 @@ public class PermissionJedi implements Cloneable {
     }
 
     public void showGotoNotificationsSettingsDialog(@NonNull String rationale, @NonNull String btnPos, @NonNull String btnNeg, @NonNull DialogInterface.OnClickListener diPos, @NonNull DialogInterface.OnClickListener diNeg) {
-        customDialog(
+        final Activity activity = this.activity.get();
+        if (activity == null) {
+            logj("showGotoNotificationsSettingsDialog()::caller is gone");
+            return;
+        }
+        final AlertDialog.Builder adb = customDialog(
                 rationale,
                 TextUtils.isEmpty(btnPos) ? activity.getString(R.string.btn_go_now) : btnPos,
                 TextUtils.isEmpty(btnNeg) ? activity.getString(R.string.btn_not_now) : btnNeg,
                 diPos,
-                diNeg).show();
+                diNeg);
+        if (adb != null) {
+            adb.show();
+        }
     }
 
+    /**
+     * @return null once the caller is gone
+     */
+    @Nullable
     private AlertDialog.Builder customDialog(@NonNull String rationale, @NonNull String btnPos, @NonNull String btnNeg, @NonNull DialogInterface.OnClickListener diPos, @NonNull DialogInterface.OnClickListener diNeg) {
+        final Activity activity = this.activity.get();
+        if (activity == null) {
+            logj("customDialog()::caller is gone");
+            return null;
+        }
         AlertDialog.Builder adb = new AlertDialog.Builder(activity);
         adb.setMessage(rationale);
         if (!(TextUtils.isEmpty(btnPos) && diPos == null)) {
@@ -280,6 +822,52 @@ public class PermissionJedi implements Cloneable {
         void onPermissionReviewed(@NonNull HashMap<String, Boolean> permits);
     }
 
+    public interface PermissionJediResultDelegate {
+        void onPermissionReviewed(@NonNull PermissionJediResult result);
+    }
+
+    /**
+     * Hears each permission as soon as its answer is known, for instance one already granted
+     * while the dialog for the others is still up, then the whole result once everything is in.
+     * For {@link #ACTION_REVOKE} granted means revoked, as in {@link PermissionJediResult}.
+     */
+    public interface PermissionJediProgressDelegate extends PermissionJediResultDelegate {
+        void onPermissionResolved(@NonNull String permission, boolean granted);
+    }
+
+    public interface PermissionJediObserver {
+        void onPermissionChanged(@NonNull String permission, boolean granted);
+    }
+
+    public interface Subscription {
+        void unsubscribe();
+    }
+
+    /**
+     * Pass one resolved permission on, if the delegate listens for progress.
+     */
+    static void progress(PermissionJediResultDelegate delegate, @NonNull String permission, boolean granted) {
+        if (delegate instanceof PermissionJediProgressDelegate) {
+            ((PermissionJediProgressDelegate) delegate).onPermissionResolved(permission, granted);
+        }
+    }
+
+    /**
+     * Serves a {@link PermissionJediDelegate} from the bitset result, the map is only built here.
+     */
+    static final class PermissionJediDelegateAdapter implements PermissionJediResultDelegate {
+        private final PermissionJediDelegate delegate;
+
+        PermissionJediDelegateAdapter(@NonNull PermissionJediDelegate delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onPermissionReviewed(@NonNull PermissionJediResult result) {
+            delegate.onPermissionReviewed(result.toMap());
+        }
+    }
+
     @Override
     protected PermissionJedi clone() throws CloneNotSupportedException {
         return (PermissionJedi) super.clone();
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Process-wide cache of the last known grant state of each permission.
+ * <p/>
+ * Filled by every permission check and request result, and dropped whenever the grant state
+ * may have changed behind our back: on return from system settings and when the app comes
+ * back to the foreground.
+ */
+final class PermissionJediCache implements PermissionJediLifecycle.Listener {
+
+    static final int UNKNOWN = 0;
+    static final int GRANTED = 1;
+    static final int DENIED = 2;
+
+    private static final class Holder {
+        private static final PermissionJediCache INSTANCE = new PermissionJediCache();
+    }
+
+    static PermissionJediCache get() {
+        return Holder.INSTANCE;
+    }
+
+    private final PermissionJediRegistry registry = PermissionJediRegistry.get();
+    private final AtomicIntegerArray states = new AtomicIntegerArray(registry.size());
+    private final ConcurrentHashMap<String, Boolean> unregistered = new ConcurrentHashMap<>();
+    private volatile boolean watching = false;
+
+    private PermissionJediCache() {
+    }
+
+    /**
+     * Have the cache dropped whenever the app returns to the foreground. Only the first call
+     * installs anything, later ones are a single read.
+     */
+    void watch(@NonNull Context context) {
+        if (!watching) {
+            PermissionJediLifecycle.install(context).addListener(this);
+            watching = true;
+        }
+    }
+
+    /**
+     * @return {@link #GRANTED}, {@link #DENIED} or {@link #UNKNOWN} when not cached
+     */
+    int peek(@NonNull String permission) {
+        final int index = registry.indexOf(permission);
+        if (index != PermissionJediRegistry.UNKNOWN) {
+            return states.get(index);
+        }
+        final Boolean granted = unregistered.get(permission);
+        if (granted == null) {
+            return UNKNOWN;
+        }
+        return granted ? GRANTED : DENIED;
+    }
+
+    void put(@NonNull String permission, boolean granted) {
+        final int index = registry.indexOf(permission);
+        if (index != PermissionJediRegistry.UNKNOWN) {
+            states.set(index, granted ? GRANTED : DENIED);
+        } else {
+            unregistered.put(permission, granted);
+        }
+    }
+
+    void putAll(@NonNull PermissionJediResult permits) {
+        for (int i = permits.nextPermission(0); i >= 0; i = permits.nextPermission(i + 1)) {
+            put(permits.permissionAt(i), permits.isGrantedAt(i));
+        }
+    }
+
+    void invalidate() {
+        for (int i = 0; i < states.length(); i++) {
+            states.set(i, UNKNOWN);
+        }
+        unregistered.clear();
+    }
+
+    @Override
+    public void onForeground() {
+        PermissionJedi.logj("PermissionJediCache::invalidate on foreground");
+        invalidate();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Merges {@link PermissionJedi#ACTION_REQUEST} calls that arrive within a short window into one
+ * {@link PermissionJediActivity} launch for the union of their permissions. Each caller is then
+ * answered with only the permissions it asked for.
+ */
+final class PermissionJediCoalescer implements Runnable {
+
+    static final long DEFAULT_WINDOW = 32L;
+
+    private static volatile long window = DEFAULT_WINDOW;
+
+    private static final class Holder {
+        private static final PermissionJediCoalescer INSTANCE = new PermissionJediCoalescer();
+    }
+
+    static PermissionJediCoalescer get() {
+        return Holder.INSTANCE;
+    }
+
+    static void setWindow(long millis) {
+        window = millis;
+    }
+
+    static long getWindow() {
+        return window;
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayList<Participant> participants = new ArrayList<>();
+    private boolean scheduled = false;
+
+    private PermissionJediCoalescer() {
+    }
+
+    synchronized void enqueue(@NonNull PermissionJedi jedi, @NonNull String[] permissions) {
+        participants.add(new Participant(jedi, permissions));
+        if (!scheduled) {
+            scheduled = true;
+            handler.postDelayed(this, window);
+        }
+    }
+
+    /**
+     * @return true if the jedi was still waiting for the window to close, and will never launch
+     */
+    synchronized boolean cancel(@NonNull PermissionJedi jedi) {
+        for (Iterator<Participant> it = participants.iterator(); it.hasNext(); ) {
+            if (it.next().jedi == jedi) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void run() {
+        final Participant[] batch;
+        synchronized (this) {
+            batch = participants.toArray(new Participant[participants.size()]);
+            participants.clear();
+            scheduled = false;
+        }
+        if (batch.length == 0) {
+            return;
+        }
+        if (batch.length == 1) {
+            batch[0].jedi.launch(PermissionJedi.ACTION_REQUEST, batch[0].permissions);
+            return;
+        }
+        Activity host = null;
+        boolean headless = false;
+        int priority = Integer.MIN_VALUE;
+        for (Participant participant : batch) {
+            priority = Math.max(priority, participant.jedi.getPriority());
+            final Activity activity = participant.jedi.getActivity();
+            if (activity != null && !activity.isFinishing()) {
+                host = activity;
+                headless = participant.jedi.isHeadless();
+            }
+        }
+        if (host == null) {
+            if (PermissionJedi.DEBUG) {
+                PermissionJedi.logj("PermissionJediCoalescer::no living host for " + batch.length + " requests");
+            }
+            for (Participant participant : batch) {
+                participant.jedi.onSessionClosed();
+            }
+            return;
+        }
+        if (PermissionJedi.DEBUG) {
+            PermissionJedi.logj("PermissionJediCoalescer::merged " + batch.length + " requests");
+        }
+        final Batch merged = new Batch(batch);
+        final PermissionJedi delegation = PermissionJedi.delegation(host, merged).priority(priority);
+        if (headless) {
+            delegation.headless();
+        }
+        delegation.launch(PermissionJedi.ACTION_REQUEST, merged.permissions());
+    }
+
+    private static final class Participant {
+        private final PermissionJedi jedi;
+        private final String[] permissions;
+
+        private Participant(PermissionJedi jedi, String[] permissions) {
+            this.jedi = jedi;
+            this.permissions = permissions;
+        }
+    }
+
+    /**
+     * Callers merged into one session. A caller cancelled while the session waits its turn is
+     * withdrawn; every caller left is handed the subset of the result it asked for.
+     */
+    static final class Batch implements PermissionJedi.PermissionJediProgressDelegate {
+        private final ArrayList<Participant> participants;
+
+        private Batch(Participant[] participants) {
+            this.participants = new ArrayList<>(Arrays.asList(participants));
+        }
+
+        /**
+         * @return true if the jedi was one of the callers, it gets nothing from the session
+         */
+        synchronized boolean withdraw(@NonNull PermissionJedi jedi) {
+            for (Iterator<Participant> it = participants.iterator(); it.hasNext(); ) {
+                if (it.next().jedi == jedi) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized boolean isEmpty() {
+            return participants.isEmpty();
+        }
+
+        synchronized PermissionJedi[] callers() {
+            final PermissionJedi[] callers = new PermissionJedi[participants.size()];
+            for (int i = 0; i < callers.length; i++) {
+                callers[i] = participants.get(i).jedi;
+            }
+            return callers;
+        }
+
+        private synchronized Participant[] snapshot() {
+            return participants.toArray(new Participant[participants.size()]);
+        }
+
+        /**
+         * @return union of what the callers left asked for, LOCAL_NOTIFICATION stays in front
+         */
+        String[] permissions() {
+            final LinkedHashSet<String> union = new LinkedHashSet<>();
+            boolean notification = false;
+            for (Participant participant : snapshot()) {
+                for (String p : participant.permissions) {
+                    if (PermissionJediRegistry.get().isLocalNotification(p)) {
+                        notification = true;
+                    } else {
+                        union.add(p);
+                    }
+                }
+            }
+            final ArrayList<String> merged = new ArrayList<>(union);
+            if (notification) {
+                merged.add(0, PermissionJedi.permission.LOCAL_NOTIFICATION);
+            }
+            return merged.toArray(new String[merged.size()]);
+        }
+
+        @Override
+        public void onPermissionResolved(@NonNull String permission, boolean granted) {
+            for (Participant participant : snapshot()) {
+                if (participant.jedi.getActivity() == null) {
+                    continue;
+                }
+                for (String p : participant.permissions) {
+                    if (p.equals(permission)) {
+                        PermissionJedi.progress(participant.jedi.getDelegate(), permission, granted);
+                        break;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onPermissionReviewed(@NonNull PermissionJediResult permits) {
+            for (Participant participant : snapshot()) {
+                final PermissionJedi.PermissionJediResultDelegate delegate = participant.jedi.getDelegate();
+                if (participant.jedi.getActivity() == null) {
+                    // Its caller is gone, a future of it must not wait any longer
+                    participant.jedi.onSessionClosed();
+                } else if (delegate != null) {
+                    delegate.onPermissionReviewed(permits.subset(participant.permissions));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.ActivityCompat;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * The permission flow of one session, independent of what hosts it. Both
+ * {@link PermissionJediActivity} and the headless {@link PermissionJediFragment} forward their
+ * callbacks here.
+ */
+final class PermissionJediEngine {
+
+    static final int REQUEST_CODE_ASK_PERMISSIONS = 91001;
+    static final int REQUEST_CODE_GOTO_APP_PERMISSION_SETTINGS = 91002;
+    static final int REQUEST_CODE_GOTO_APP_NOTIFICATIONS_SETTINGS = 91003;
+
+    static final long DEFAULT_TIMEOUT = 5 * 60 * 1000L;
+
+    private static volatile long defaultTimeout = DEFAULT_TIMEOUT;
+    private static final Handler deadlines = new Handler(Looper.getMainLooper());
+
+    static void setDefaultTimeout(long millis) {
+        defaultTimeout = millis;
+    }
+
+    static long getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    interface Host {
+        Activity getHostActivity();
+
+        void askPermissions(@NonNull String[] permissions, int requestCode);
+
+        void startActivityForResult(@NonNull Intent intent, int requestCode);
+
+        boolean isVanishing();
+
+        void dismiss();
+    }
+
+    private final Host host;
+    private PermissionJediKit jediKit;
+    private PermissionJediResult delegateResult = PermissionJediResult.EMPTY;
+    // Missing permissions of the request when fewer were asked, one per group
+    private String[] inferred = null;
+    private boolean delivered = false;
+    private final HashSet<String> streamed = new HashSet<>();
+    // State before a trip to settings, so the result on return can tell what changed
+    private PermissionJediResult baseline = null;
+    // State before the dialog, the dialog only covers what was missing
+    private PermissionJediResult checked = null;
+    private final Runnable deadline = new Runnable() {
+        @Override
+        public void run() {
+            expire();
+        }
+    };
+
+    PermissionJediEngine(@NonNull Host host, @NonNull PermissionJediKit jediKit) {
+        this.host = host;
+        this.jediKit = jediKit;
+    }
+
+    /**
+     * Kit of the session being hosted: from saved state first, then from the live session,
+     * then from a legacy serialized extra.
+     */
+    static PermissionJediKit restore(@Nullable Bundle savedInstanceState, @Nullable Bundle extras) {
+        PermissionJediKit jediKit = PermissionJediKit.restore(savedInstanceState);
+        if (jediKit == null && extras != null) {
+            final PermissionJedi jedi = PermissionJediSessions.resolve(extras.getInt(PermissionJediKit.EXTRA_SESSION_KEY, PermissionJediSessions.NO_SESSION));
+            jediKit = (jedi != null && jedi.getKit() != null)
+                    ? jedi.getKit()
+                    : PermissionJediKit.renounce(extras.getSerializable(PermissionJediKit.EXTRA_KEY));
+        }
+        return jediKit;
+    }
+
+    PermissionJediKit getKit() {
+        return jediKit;
+    }
+
+    void setKit(@NonNull PermissionJediKit jediKit) {
+        this.jediKit = jediKit;
+    }
+
+    void start() {
+        PermissionJediTrace.emit(PermissionJediTrace.Event.ACTIVITY_LAUNCHED, jediKit.getSessionId());
+        final PermissionJedi jedi = PermissionJediSessions.resolve(jediKit.getSessionId());
+        final long timeout = (jedi != null) ? jedi.getTimeout() : defaultTimeout;
+        if (timeout > 0) {
+            deadlines.postDelayed(deadline, timeout);
+        }
+        final String[] permissions = jediKit.getPermissions();
+        if (permissions.length == 0) {
+            host.dismiss();
+            return;
+        }
+        switch (jediKit.getAction()) {
+            case PermissionJedi.ACTION_CHECK:
+                hasPermissions(permissions);
+                break;
+            case PermissionJedi.ACTION_REQUEST:
+                requestPermissions(permissions);
+                break;
+            case PermissionJedi.ACTION_REVOKE:
+                checkPolicy(permissions);
+                break;
+            case PermissionJedi.ACTION_APP_PERMISSIONS_SETTINGS:
+                gotoAppSettings();
+                break;
+            case PermissionJedi.ACTION_APP_NOTIFICATIONS_SETTINGS:
+                gotoNotificationSettings();
+                break;
+            default:
+                host.dismiss();
+        }
+    }
+
+    private void checkPolicy(@NonNull String... permissions) {
+        final PermissionJediResult permits = PermissionJediInspector.isPermissionRevokedByPolicy(host.getHostActivity(), permissions);
+        onPermissionReviewed(permits);
+    }
+
+    private PermissionJediResult checkPermission(@NonNull String... permissions) {
+        return PermissionJediInspector.checkPermission(host.getHostActivity(), permissions);
+    }
+
+    private void hasPermissions(@NonNull String... permissions) {
+        final PermissionJediResult permits = checkPermission(permissions);
+        journal(permits, false);
+        onPermissionReviewed(permits);
+    }
+
+    /**
+     * Keep {@link PermissionJediJournal} in step with a result. A denial is only judged right
+     * after the dialog, where no rationale means the user chose not to be asked again.
+     */
+    private void journal(@NonNull PermissionJediResult permits, boolean asked) {
+        final Activity activity = host.getHostActivity();
+        if (activity == null || permits.isEmpty()) {
+            return;
+        }
+        final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        final PermissionJediJournal journal = PermissionJediJournal.get(activity);
+        for (int i = permits.nextPermission(0); i >= 0; i = permits.nextPermission(i + 1)) {
+            final String p = permits.permissionAt(i);
+            if (registry.isLocalNotification(p)) {
+                continue;
+            }
+            if (permits.isGrantedAt(i)) {
+                journal.record(p, PermissionJediJournal.GRANTED);
+            } else if (asked && !PermissionJedi.isAndroidPreM()) {
+                journal.record(p, ActivityCompat.shouldShowRequestPermissionRationale(activity, p)
+                        ? PermissionJediJournal.DENIED
+                        : PermissionJediJournal.DENIED_PERMANENTLY);
+            }
+        }
+    }
+
+    private void requestPermissions(@NonNull String... permissions) {
+        ArrayList<String> missingPermissions = new ArrayList<String>();
+        final PermissionJediResult permits = checkPermission(permissions);
+        checked = permits;
+        final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        for (final String p : permissions) {
+            if (!permits.isGranted(p)) {
+                missingPermissions.add(p);
+            }
+            // Granted ones and the notification state are final before any dialog
+            if (permits.isGranted(p) || registry.isLocalNotification(p)) {
+                stream(p, permits.isGranted(p));
+            }
+        }
+        if (missingPermissions.isEmpty()) {
+            grantAllPermissions(permissions);
+        } else {
+            if (PermissionJedi.isAndroidPreM()) {
+                grantAllPermissions(permissions);
+            } else {
+                final String[] missing = missingPermissions.toArray(new String[missingPermissions.size()]);
+                String[] ask = missing;
+                if (PermissionJediGroups.grantsByGroup()) {
+                    ask = PermissionJediGroups.plan(missing);
+                    inferred = (ask.length < missing.length) ? missing : null;
+                }
+                final PermissionJediJournal journal = PermissionJediJournal.get(host.getHostActivity());
+                for (final String p : ask) {
+                    if (!registry.isLocalNotification(p)) {
+                        journal.record(p, PermissionJediJournal.ASKED);
+                    }
+                }
+                host.askPermissions(ask, REQUEST_CODE_ASK_PERMISSIONS);
+                PermissionJediTrace.emit(PermissionJediTrace.Event.SYSTEM_DIALOG_SHOWN, jediKit.getSessionId());
+            }
+        }
+    }
+
+    private void grantAllPermissions(String... permissions) {
+        final int[] grantResults = new int[permissions.length];
+        Arrays.fill(grantResults, PackageManager.PERMISSION_GRANTED);
+        onRequestPermissionsResult(REQUEST_CODE_ASK_PERMISSIONS, permissions, grantResults);
+    }
+
+    private void gotoAppSettings() {
+        final Activity activity = host.getHostActivity();
+        Intent intent = new Intent();
+        intent.setAction(Settings.ACTION_APPLICATION_DETAILS_SETTINGS);
+        Uri uri = Uri.fromParts("package", activity.getPackageName(), null);
+        intent.setData(uri);
+        baseline = checkPermission(jediKit.getPermissions());
+        host.startActivityForResult(intent, REQUEST_CODE_GOTO_APP_PERMISSION_SETTINGS);
+        PermissionJediTrace.emit(PermissionJediTrace.Event.SYSTEM_DIALOG_SHOWN, jediKit.getSessionId());
+    }
+
+    private void gotoNotificationSettings() {
+        gotoNotificationSettings(null);
+    }
+
+    private void gotoNotificationSettings(String channel) {
+        try {
+            final Activity activity = host.getHostActivity();
+            Intent intent = new Intent();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                intent.setAction(Settings.ACTION_APP_NOTIFICATION_SETTINGS);
+                if (!TextUtils.isEmpty(channel)) {
+                    intent.putExtra(Settings.EXTRA_CHANNEL_ID, channel);
+                }
+                intent.putExtra(Settings.EXTRA_APP_PACKAGE, activity.getPackageName());
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1) {
+                intent.setAction(Settings.ACTION_APP_NOTIFICATION_SETTINGS);
+                intent.putExtra(Settings.EXTRA_APP_PACKAGE, activity.getPackageName());
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                intent.setAction(Settings.ACTION_APP_NOTIFICATION_SETTINGS);
+                intent.putExtra("app_package", activity.getPackageName());
+                intent.putExtra("app_uid", activity.getApplicationInfo().uid);
+            } else {
+                intent.setAction(Settings.ACTION_APPLICATION_DETAILS_SETTINGS);
+                intent.addCategory(Intent.CATEGORY_DEFAULT);
+                intent.setData(Uri.parse("package:" + activity.getPackageName()));
+            }
+            baseline = checkPermission(jediKit.getPermissions());
+            host.startActivityForResult(intent, REQUEST_CODE_GOTO_APP_NOTIFICATIONS_SETTINGS);
+            PermissionJediTrace.emit(PermissionJediTrace.Event.SYSTEM_DIALOG_SHOWN, jediKit.getSessionId());
+        } catch (Exception e) {
+            PermissionJedi.logj(e);
+        }
+    }
+
+    void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        final PermissionJediResult result;
+        if (requestCode != REQUEST_CODE_ASK_PERMISSIONS) {
+            result = PermissionJediResult.EMPTY;
+        } else if (inferred != null && permissions.length > 0) {
+            // The rest of each group followed the answer, confirm them all with one snapshot
+            result = checkPermission(inferred);
+            inferred = null;
+        } else {
+            result = PermissionJediResult.fromGrantResults(permissions, grantResults);
+        }
+        PermissionJediCache.get().putAll(result);
+        PermissionJediWatcher.get().scheduleRecheck();
+        journal(result, true);
+        onPermissionReviewed(merged(result));
+    }
+
+    /**
+     * A merged request asks for what is missing from the union of its callers, yet each caller
+     * is owed the state of everything it asked for, including what it held already.
+     */
+    private PermissionJediResult merged(@NonNull PermissionJediResult result) {
+        final PermissionJedi jedi = PermissionJediSessions.resolve(jediKit.getSessionId());
+        if (checked == null || jedi == null || jedi.getBatch() == null) {
+            return result;
+        }
+        return new PermissionJediResult.Builder().putAll(checked).putAll(result).build();
+    }
+
+    /**
+     * @return true if the result belonged to this engine
+     */
+    boolean onActivityResult(int requestCode) {
+        if (requestCode == REQUEST_CODE_GOTO_APP_PERMISSION_SETTINGS ||
+                requestCode == REQUEST_CODE_GOTO_APP_NOTIFICATIONS_SETTINGS) {
+            PermissionJediCache.get().invalidate();
+            PermissionJediWatcher.get().scheduleRecheck();
+            final PermissionJediResult permits = checkPermission(jediKit.getPermissions());
+            journal(permits, false);
+            onPermissionReviewed(new PermissionJediResult.Builder().baseline(baseline).putAll(permits).build());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The deadline passed with no answer, typically the user never came back from settings.
+     * Deliver what one last check finds, marked as timed out, and tear the session down.
+     */
+    private void expire() {
+        final Activity activity = host.getHostActivity();
+        if (delivered || activity == null) {
+            return;
+        }
+        if (PermissionJedi.DEBUG) {
+            PermissionJedi.logj("expire()::session " + jediKit.getSessionId() + " timed out");
+        }
+        inferred = null;
+        final String[] permissions = jediKit.getPermissions();
+        final PermissionJediResult last = PermissionJedi.ACTION_REVOKE.equals(jediKit.getAction())
+                ? PermissionJediInspector.isPermissionRevokedByPolicy(activity, permissions)
+                : checkPermission(permissions);
+        onPermissionReviewed(new PermissionJediResult.Builder().timedOut(true).baseline(baseline).putAll(last).build());
+    }
+
+    private void onPermissionReviewed(@NonNull PermissionJediResult permits) {
+        if (delivered) {
+            return;
+        }
+        delivered = true;
+        deadlines.removeCallbacks(deadline);
+        PermissionJediTrace.emit(PermissionJediTrace.Event.RESULT_RECEIVED, jediKit.getSessionId());
+        if (!PermissionJedi.ACTION_REVOKE.equals(jediKit.getAction()) && !permits.isEmpty()) {
+            PermissionJediProvider.publish(host.getHostActivity());
+        }
+        try {
+            if (!host.isVanishing()) {
+                try {
+                    delegateResult = permits;
+                    postResult();
+                } catch (Exception e) {
+                    throw new Exception("Jedi is crippled");
+                }
+            } else {
+                throw new Exception("Jedi Host Aborted");
+            }
+        } catch (Exception e) {
+            PermissionJedi.logj(e);
+        } finally {
+            final PermissionJedi jedi = PermissionJediSessions.resolve(jediKit.getSessionId());
+            if (jedi != null) {
+                PermissionJediScheduler.get().finished(jedi);
+            }
+            host.dismiss();
+        }
+    }
+
+    /**
+     * Hand one permission to a progress delegate as soon as it is known, once per session.
+     */
+    private void stream(@NonNull String permission, boolean granted) {
+        if (!streamed.add(permission) || host.isVanishing()) {
+            return;
+        }
+        final PermissionJedi jedi = PermissionJediSessions.resolve(jediKit.getSessionId());
+        if (jedi != null) {
+            PermissionJedi.progress(jedi.getDelegate(), permission, granted);
+        }
+    }
+
+    private void postResult() throws Exception {
+        final PermissionJedi jedi = PermissionJediSessions.resolve(jediKit.getSessionId());
+        if (jedi != null && jedi.getDelegate() != null) {
+            for (int i = delegateResult.nextPermission(0); i >= 0; i = delegateResult.nextPermission(i + 1)) {
+                stream(delegateResult.permissionAt(i), delegateResult.isGrantedAt(i));
+            }
+            PermissionJediTrace.emit(PermissionJediTrace.Event.DELEGATE_INVOKED, jediKit.getSessionId());
+            jedi.getDelegate().onPermissionReviewed(delegateResult);
+        } else if (PermissionJedi.DEBUG) {
+            PermissionJedi.logj("postResult()::no delegate for session " + jediKit.getSessionId());
+        }
+    }
+
+    /**
+     * Close the hosted session, a pending future learns it will never complete.
+     */
+    void close() {
+        deadlines.removeCallbacks(deadline);
+        final PermissionJedi jedi = PermissionJediSessions.close(jediKit.getSessionId());
+        if (jedi != null) {
+            jedi.onSessionClosed();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.app.Fragment;
+import android.app.FragmentManager;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Windowless host of a session, retained inside the caller's own Activity. Nothing is
+ * launched or drawn, so there is no Activity transition and no translucent window.
+ */
+public class PermissionJediFragment extends Fragment implements PermissionJediEngine.Host {
+
+    private static final String TAG = "PermissionJediFragment#";
+
+    private PermissionJediEngine engine = null;
+
+    static void attach(@NonNull Activity activity, int sessionId) {
+        final Bundle extras = new Bundle();
+        extras.putInt(PermissionJediKit.EXTRA_SESSION_KEY, sessionId);
+        final PermissionJediFragment fragment = new PermissionJediFragment();
+        fragment.setArguments(extras);
+        activity.getFragmentManager()
+                .beginTransaction()
+                .add(fragment, TAG + sessionId)
+                .commitAllowingStateLoss();
+    }
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setRetainInstance(true);
+        engine = new PermissionJediEngine(this, PermissionJediEngine.restore(savedInstanceState, getArguments()));
+        engine.start();
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle extras) {
+        extras.putParcelable(PermissionJediKit.EXTRA_KEY, engine.getKit());
+        super.onSaveInstanceState(extras);
+    }
+
+    @Override
+    public Activity getHostActivity() {
+        return getActivity();
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    @Override
+    public void askPermissions(@NonNull String[] permissions, int requestCode) {
+        // Only reached on M and above, older platforms are granted at install time
+        requestPermissions(permissions, requestCode);
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+                                           @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        engine.onRequestPermissionsResult(requestCode, permissions, grantResults);
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, Intent data) {
+        if (!engine.onActivityResult(requestCode)) {
+            super.onActivityResult(requestCode, resultCode, data);
+        }
+    }
+
+    @Override
+    public boolean isVanishing() {
+        final Activity activity = getActivity();
+        return activity == null || activity.isFinishing() || isRemoving();
+    }
+
+    @Override
+    public void dismiss() {
+        final FragmentManager fragmentManager = getFragmentManager();
+        if (fragmentManager != null && isAdded() && !isRemoving()) {
+            fragmentManager.beginTransaction().remove(this).commitAllowingStateLoss();
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // Retained, so this only runs once the fragment or its Activity is really gone
+        if (engine != null) {
+            engine.close();
+        }
+    }
+}
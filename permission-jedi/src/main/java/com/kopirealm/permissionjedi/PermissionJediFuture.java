@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Composable result of an asynchronous permission flow. Completion, callbacks and
+ * transformations all run on the {@link Executor} chosen by the caller, so work unlocked by
+ * a permission can start there without another hop through the main thread.
+ */
+public class PermissionJediFuture<V> implements Future<V> {
+
+    public interface Callback<V> {
+        void onSuccess(V value);
+
+        void onFailure(@NonNull Throwable t);
+    }
+
+    public interface Transform<V, R> {
+        R apply(V value) throws Exception;
+    }
+
+    private final Executor executor;
+    private final AtomicBoolean claimed = new AtomicBoolean(false);
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final ArrayList<Runnable> listeners = new ArrayList<>();
+    private volatile V value = null;
+    private volatile Throwable failure = null;
+    private volatile boolean cancelled = false;
+
+    PermissionJediFuture(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Hop to the delivery executor and complete there.
+     *
+     * @return false if the future was already completed
+     */
+    boolean deliver(final V value) {
+        if (!claimed.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                settle(value, null, false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Complete on the current thread, for callers already running on the delivery executor.
+     */
+    boolean complete(V value) {
+        if (!claimed.compareAndSet(false, true)) {
+            return false;
+        }
+        settle(value, null, false);
+        return true;
+    }
+
+    private boolean completeExceptionally(@NonNull Throwable t) {
+        if (!claimed.compareAndSet(false, true)) {
+            return false;
+        }
+        settle(null, t, false);
+        return true;
+    }
+
+    boolean fail(@NonNull final Throwable t) {
+        if (!claimed.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                settle(null, t, false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @param dispatch true to run the listeners on the delivery executor, when settling from
+     *                 another thread
+     */
+    private void settle(V value, Throwable failure, boolean dispatch) {
+        final ArrayList<Runnable> pending;
+        synchronized (listeners) {
+            this.value = value;
+            this.failure = failure;
+            done.countDown();
+            pending = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        final Runnable notify = new Runnable() {
+            @Override
+            public void run() {
+                for (Runnable listener : pending) {
+                    listener.run();
+                }
+            }
+        };
+        if (dispatch) {
+            executor.execute(notify);
+        } else {
+            notify.run();
+        }
+    }
+
+    /**
+     * Run the callback on the delivery executor once this future completes.
+     */
+    public PermissionJediFuture<V> whenComplete(@NonNull final Callback<V> callback) {
+        final Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                if (failure != null) {
+                    callback.onFailure(failure);
+                } else {
+                    callback.onSuccess(value);
+                }
+            }
+        };
+        synchronized (listeners) {
+            if (!isDone()) {
+                listeners.add(listener);
+                return this;
+            }
+        }
+        executor.execute(listener);
+        return this;
+    }
+
+    /**
+     * Chain a transformation that runs on the delivery executor.
+     */
+    public <R> PermissionJediFuture<R> then(@NonNull final Transform<V, R> transform) {
+        final PermissionJediFuture<R> next = new PermissionJediFuture<>(executor);
+        whenComplete(new Callback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                try {
+                    next.complete(transform.apply(value));
+                } catch (Exception e) {
+                    next.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                next.completeExceptionally(t);
+            }
+        });
+        return next;
+    }
+
+    /**
+     * A cancelled future completes with a {@link CancellationException} before this returns,
+     * only its callbacks run on the delivery executor; a permission dialog already on screen is
+     * left for the user to answer.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!claimed.compareAndSet(false, true)) {
+            return false;
+        }
+        cancelled = true;
+        settle(null, new CancellationException(), true);
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+        done.await();
+        return report();
+    }
+
+    @Override
+    public V get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    private V report() throws ExecutionException {
+        if (failure instanceof CancellationException) {
+            throw (CancellationException) failure;
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Lets a call identical to one already in flight, same action and same permissions, share
+ * its result instead of launching again. A call is in flight from the moment it is submitted,
+ * and takes identical calls while it waits for its turn and within the window after it
+ * launches. Repeated taps on one button end up with one session.
+ */
+final class PermissionJediGate {
+
+    static final long DEFAULT_WINDOW = 1000L;
+
+    private static volatile long window = DEFAULT_WINDOW;
+
+    private static final class Holder {
+        private static final PermissionJediGate INSTANCE = new PermissionJediGate();
+    }
+
+    static PermissionJediGate get() {
+        return Holder.INSTANCE;
+    }
+
+    static void setWindow(long millis) {
+        window = millis;
+    }
+
+    static long getWindow() {
+        return window;
+    }
+
+    private final HashMap<String, InFlight> inFlight = new HashMap<>();
+
+    private PermissionJediGate() {
+    }
+
+    private static String keyOf(@NonNull String action, @NonNull String[] permissions) {
+        final String[] sorted = permissions.clone();
+        Arrays.sort(sorted);
+        final StringBuilder key = new StringBuilder(action);
+        for (String p : sorted) {
+            key.append('|').append(p);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return true if the jedi was attached to an identical request in flight, and must not launch
+     */
+    synchronized boolean attach(@NonNull String action, @NonNull String[] permissions, @NonNull PermissionJedi jedi) {
+        if (window <= 0 || inFlight.isEmpty()) {
+            return false;
+        }
+        final InFlight leader = inFlight.get(keyOf(action, permissions));
+        if (leader == null || (leader.launched >= 0 && SystemClock.uptimeMillis() - leader.launched > window)) {
+            return false;
+        }
+        leader.followers.add(jedi);
+        if (PermissionJedi.DEBUG) {
+            PermissionJedi.logj("PermissionJediGate::attached to " + action + " in flight");
+        }
+        return true;
+    }
+
+    /**
+     * Register a submitted request, so identical calls can attach to it until it finishes.
+     */
+    synchronized void lead(@NonNull String action, @NonNull String[] permissions, @NonNull PermissionJedi jedi) {
+        if (window <= 0) {
+            return;
+        }
+        final String key = keyOf(action, permissions);
+        final InFlight leader = new InFlight(jedi, action, jedi.getDelegate());
+        inFlight.put(key, leader);
+        jedi.onResult(new PermissionJedi.PermissionJediProgressDelegate() {
+            @Override
+            public void onPermissionResolved(@NonNull String permission, boolean granted) {
+                leader.progress(permission, granted);
+            }
+
+            @Override
+            public void onPermissionReviewed(@NonNull PermissionJediResult result) {
+                synchronized (PermissionJediGate.this) {
+                    inFlight.values().remove(leader);
+                }
+                leader.deliver(result);
+            }
+        });
+    }
+
+    /**
+     * The leader's session opened, the window starts now.
+     */
+    synchronized void launched(@NonNull PermissionJedi jedi) {
+        for (InFlight leader : inFlight.values()) {
+            if (leader.jedi == jedi && leader.launched < 0) {
+                leader.launched = SystemClock.uptimeMillis();
+            }
+        }
+    }
+
+    /**
+     * The leader's session ended without a result. Its first follower whose caller is still
+     * alive takes over and launches again, the others attach to it; only followers whose own
+     * caller is gone are let go.
+     */
+    void release(@NonNull PermissionJedi jedi) {
+        String action = null;
+        final ArrayList<PermissionJedi> followers = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Map.Entry<String, InFlight>> it = inFlight.entrySet().iterator(); it.hasNext(); ) {
+                final InFlight leader = it.next().getValue();
+                if (leader.jedi == jedi) {
+                    action = leader.action;
+                    followers.addAll(leader.followers);
+                    it.remove();
+                }
+            }
+        }
+        for (PermissionJedi follower : followers) {
+            final Activity activity = follower.getActivity();
+            if (activity == null || activity.isFinishing()) {
+                follower.onSessionClosed();
+            } else {
+                if (PermissionJedi.DEBUG) {
+                    PermissionJedi.logj("PermissionJediGate::leader gone, relaunching " + action);
+                }
+                // The first one leads again, the rest attach to it
+                follower.execute(action);
+            }
+        }
+    }
+
+    private static final class InFlight {
+        private final PermissionJedi jedi;
+        private final String action;
+        private final PermissionJedi.PermissionJediResultDelegate delegate;
+        // Uptime at launch, negative while still waiting to launch
+        private long launched = -1;
+        private final ArrayList<PermissionJedi> followers = new ArrayList<>(1);
+
+        private InFlight(PermissionJedi jedi, String action, PermissionJedi.PermissionJediResultDelegate delegate) {
+            this.jedi = jedi;
+            this.action = action;
+            this.delegate = delegate;
+        }
+
+        private void progress(@NonNull String permission, boolean granted) {
+            PermissionJedi.progress(delegate, permission, granted);
+            for (PermissionJedi follower : attached()) {
+                if (follower.getActivity() != null) {
+                    PermissionJedi.progress(follower.getDelegate(), permission, granted);
+                }
+            }
+        }
+
+        private PermissionJedi[] attached() {
+            synchronized (PermissionJediGate.get()) {
+                return followers.toArray(new PermissionJedi[followers.size()]);
+            }
+        }
+
+        private void deliver(@NonNull PermissionJediResult result) {
+            if (delegate != null) {
+                delegate.onPermissionReviewed(result);
+            }
+            for (PermissionJedi follower : attached()) {
+                final PermissionJedi.PermissionJediResultDelegate delegate = follower.getDelegate();
+                if (delegate != null && follower.getActivity() != null) {
+                    delegate.onPermissionReviewed(result);
+                }
+            }
+        }
+    }
+}
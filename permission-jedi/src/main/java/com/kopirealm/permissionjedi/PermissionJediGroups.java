@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Permission groups of runtime permissions. Up to API 25 granting one member of a group grants
+ * the whole group, so a request only needs to ask once per group.
+ */
+final class PermissionJediGroups {
+
+    private static final HashMap<String, String> PLATFORM = new HashMap<>();
+
+    static {
+        group("android.permission-group.CALENDAR",
+                "android.permission.READ_CALENDAR",
+                "android.permission.WRITE_CALENDAR");
+        group("android.permission-group.CAMERA",
+                "android.permission.CAMERA");
+        group("android.permission-group.CONTACTS",
+                "android.permission.READ_CONTACTS",
+                "android.permission.WRITE_CONTACTS",
+                "android.permission.GET_ACCOUNTS");
+        group("android.permission-group.LOCATION",
+                "android.permission.ACCESS_FINE_LOCATION",
+                "android.permission.ACCESS_COARSE_LOCATION");
+        group("android.permission-group.MICROPHONE",
+                "android.permission.RECORD_AUDIO");
+        group("android.permission-group.PHONE",
+                "android.permission.READ_PHONE_STATE",
+                "android.permission.READ_PHONE_NUMBERS",
+                "android.permission.CALL_PHONE",
+                "android.permission.ANSWER_PHONE_CALLS",
+                "android.permission.READ_CALL_LOG",
+                "android.permission.WRITE_CALL_LOG",
+                "com.android.voicemail.permission.ADD_VOICEMAIL",
+                "android.permission.USE_SIP",
+                "android.permission.PROCESS_OUTGOING_CALLS");
+        group("android.permission-group.SENSORS",
+                "android.permission.BODY_SENSORS");
+        group("android.permission-group.SMS",
+                "android.permission.SEND_SMS",
+                "android.permission.RECEIVE_SMS",
+                "android.permission.READ_SMS",
+                "android.permission.RECEIVE_WAP_PUSH",
+                "android.permission.RECEIVE_MMS");
+        group("android.permission-group.STORAGE",
+                "android.permission.READ_EXTERNAL_STORAGE",
+                "android.permission.WRITE_EXTERNAL_STORAGE");
+    }
+
+    private PermissionJediGroups() {
+    }
+
+    private static void group(String group, String... permissions) {
+        for (String p : permissions) {
+            PLATFORM.put(p, group);
+        }
+    }
+
+    /**
+     * @return group from the build-time {@link PermissionJediTable} when declared there,
+     * otherwise the platform group, or null for a permission without one
+     */
+    @Nullable
+    static String groupOf(@NonNull String permission) {
+        final PermissionJediTable table = PermissionJediTable.get();
+        if (table.isDeclared(permission)) {
+            return table.group(permission);
+        }
+        return PLATFORM.get(permission);
+    }
+
+    /**
+     * @return true while the platform grants a whole group at once
+     */
+    static boolean grantsByGroup() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                && Build.VERSION.SDK_INT < Build.VERSION_CODES.O;
+    }
+
+    /**
+     * One permission per group, in request order; permissions without a group are all kept.
+     */
+    static String[] plan(@NonNull String[] permissions) {
+        final ArrayList<String> plan = new ArrayList<>(permissions.length);
+        final HashSet<String> asked = new HashSet<>();
+        for (String p : permissions) {
+            final String group = groupOf(p);
+            if (group == null || asked.add(group)) {
+                plan.add(p);
+            }
+        }
+        return plan.toArray(new String[plan.size()]);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.v4.app.NotificationManagerCompat;
+import android.support.v4.content.ContextCompat;
+
+/**
+ * Stateless permission lookups shared by {@link PermissionJediEngine} and the inline check of
+ * {@link PermissionJedi}, so that a plain check never has to launch an Activity.
+ */
+final class PermissionJediInspector {
+
+    private PermissionJediInspector() {
+    }
+
+    /**
+     * With more than one permission to check, all of them are answered from a single
+     * {@link PermissionJediSnapshot}; a permission it cannot answer is checked on its own.
+     */
+    static PermissionJediResult checkPermission(@NonNull Context context, @NonNull String... permissions) {
+        final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        final PermissionJediCache cache = PermissionJediCache.get();
+        final PermissionJediResult.Builder permits = new PermissionJediResult.Builder();
+        final PermissionJediSnapshot snapshot = (!PermissionJedi.isAndroidPreM() && permissions.length > 1)
+                ? PermissionJediSnapshot.take(context)
+                : null;
+        for (final String p : permissions) {
+            final boolean granted;
+            if (PermissionJedi.isAndroidPreM()) {
+                granted = true;
+            } else {
+                if (registry.isLocalNotification(p)) {
+                    granted = NotificationManagerCompat.from(context).areNotificationsEnabled();
+                } else {
+                    final int state = (snapshot != null) ? snapshot.state(p) : PermissionJediSnapshot.UNKNOWN;
+                    granted = (state != PermissionJediSnapshot.UNKNOWN)
+                            ? state == PermissionJediSnapshot.GRANTED
+                            : ContextCompat.checkSelfPermission(context, p) == PackageManager.PERMISSION_GRANTED;
+                }
+            }
+            permits.put(p, granted);
+            cache.put(p, granted);
+            if (PermissionJedi.DEBUG) {
+                PermissionJedi.logj("checkPermission()::" + p + "::" + granted);
+            }
+        }
+        return permits.build();
+    }
+
+    /**
+     * Answer from {@link PermissionJediCache} when warm, otherwise check once and fill it.
+     */
+    static boolean isGranted(@NonNull Context context, @NonNull String permission) {
+        final int state = PermissionJediCache.get().peek(permission);
+        if (state != PermissionJediCache.UNKNOWN) {
+            return state == PermissionJediCache.GRANTED;
+        }
+        return checkPermission(context, permission).isGranted(permission);
+    }
+
+    /**
+     * A granted permission cannot be revoked by policy, so only the ones a snapshot reports as
+     * not granted go to the system.
+     */
+    @TargetApi(Build.VERSION_CODES.M)
+    static PermissionJediResult isPermissionRevokedByPolicy(@NonNull Context context, @NonNull String... permissions) {
+        final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        final PermissionJediResult.Builder permits = new PermissionJediResult.Builder();
+        final PermissionJediSnapshot snapshot = (!PermissionJedi.isAndroidPreM() && permissions.length > 1)
+                ? PermissionJediSnapshot.take(context)
+                : null;
+        for (final String p : permissions) {
+            if (PermissionJedi.isAndroidPreM() || registry.isLocalNotification(p)) {
+                permits.put(p, false);
+            } else if (snapshot != null && snapshot.state(p) == PermissionJediSnapshot.GRANTED) {
+                permits.put(p, false);
+            } else {
+                boolean revoked;
+                try {
+                    revoked = context.getPackageManager().isPermissionRevokedByPolicy(p, context.getPackageName());
+                } catch (Exception e) {
+                    PermissionJedi.logj(e);
+                    revoked = false;
+                }
+                permits.put(p, revoked);
+                if (PermissionJedi.DEBUG) {
+                    PermissionJedi.logj("checkPolicy()::" + p + "::" + revoked);
+                }
+            }
+        }
+        return permits.build();
+    }
+}
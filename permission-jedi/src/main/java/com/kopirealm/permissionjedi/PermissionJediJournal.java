@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Last known request outcome of each permission, kept across sessions in an append-only file.
+ * <p/>
+ * A record is one outcome byte, one length byte and the permission name in UTF-8; later
+ * records win. The file is memory-mapped on a single background thread, which then also takes
+ * the appends, and is rewritten with only the latest outcomes once it grows too large.
+ * Neither recording nor reading waits for the file: until it has been loaded, only outcomes
+ * recorded since are known, and a request for any other permission just goes to the dialog.
+ */
+final class PermissionJediJournal {
+
+    static final byte NONE = 0;
+    static final byte ASKED = 1;
+    static final byte GRANTED = 2;
+    static final byte DENIED = 3;
+    static final byte DENIED_PERMANENTLY = 4;
+
+    private static final String FILE_NAME = "permissionjedi.journal";
+    private static final int COMPACT_SIZE = 16 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static volatile PermissionJediJournal instance = null;
+
+    private final Context context;
+    // Resolved on the writer thread, getFilesDir() may touch the disk
+    private File file;
+    private final ConcurrentHashMap<String, Byte> outcomes = new ConcurrentHashMap<>();
+    private final Executor writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            final Thread thread = new Thread(runnable, "PermissionJedi-journal");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private long size = 0;
+
+    private PermissionJediJournal(Context context, File file) {
+        this.context = context;
+        this.file = file;
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * Journal kept in the given file, for tests; the app's own goes through {@link #get(Context)}.
+     */
+    PermissionJediJournal(@NonNull File file) {
+        this(null, file);
+    }
+
+    static PermissionJediJournal get(@NonNull Context context) {
+        PermissionJediJournal journal = instance;
+        if (journal == null) {
+            synchronized (PermissionJediJournal.class) {
+                journal = instance;
+                if (journal == null) {
+                    journal = new PermissionJediJournal(context.getApplicationContext(), null);
+                    instance = journal;
+                }
+            }
+        }
+        return journal;
+    }
+
+    private void load() {
+        if (file == null) {
+            file = new File(context.getFilesDir(), FILE_NAME);
+        }
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+        final HashMap<String, Byte> stored = new HashMap<>();
+        boolean torn = false;
+        RandomAccessFile in = null;
+        try {
+            in = new RandomAccessFile(file, "r");
+            final FileChannel channel = in.getChannel();
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] name = new byte[255];
+            while (buffer.hasRemaining()) {
+                if (buffer.remaining() < 2) {
+                    torn = true;
+                    break;
+                }
+                final byte outcome = buffer.get();
+                final int length = buffer.get() & 0xff;
+                if (buffer.remaining() < length) {
+                    torn = true;
+                    break;
+                }
+                buffer.get(name, 0, length);
+                stored.put(new String(name, 0, length, UTF_8), outcome);
+                size = buffer.position();
+            }
+        } catch (IOException e) {
+            PermissionJedi.logj(e);
+        } finally {
+            close(in);
+        }
+        // Outcomes recorded while loading are newer than the file
+        for (Map.Entry<String, Byte> entry : stored.entrySet()) {
+            outcomes.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        if (torn) {
+            // Torn tail of an interrupted append, later appends must not land behind it
+            compact();
+        }
+    }
+
+    /**
+     * @return last outcome recorded for the permission, or {@link #NONE}, also while the file
+     * is still being loaded
+     */
+    byte outcome(@NonNull String permission) {
+        final Byte outcome = outcomes.get(permission);
+        return (outcome == null) ? NONE : outcome;
+    }
+
+    boolean isPermanentlyDenied(@NonNull String permission) {
+        return outcome(permission) == DENIED_PERMANENTLY;
+    }
+
+    void record(@NonNull String permission, byte outcome) {
+        final Byte previous = outcomes.put(permission, outcome);
+        if (previous != null && previous == outcome) {
+            return;
+        }
+        final byte[] name = permission.getBytes(UTF_8);
+        if (name.length > 255) {
+            return;
+        }
+        final ByteBuffer record = ByteBuffer.allocate(2 + name.length);
+        record.put(outcome).put((byte) name.length).put(name);
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(record.array());
+            }
+        });
+    }
+
+    /**
+     * Wait until the file is loaded and every outcome recorded so far is in it.
+     */
+    void flush() {
+        final CountDownLatch flushed = new CountDownLatch(1);
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                flushed.countDown();
+            }
+        });
+        try {
+            flushed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(byte[] record) {
+        if (size + record.length > COMPACT_SIZE) {
+            compact();
+            return;
+        }
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file, true);
+            out.write(record);
+            size += record.length;
+        } catch (IOException e) {
+            PermissionJedi.logj(e);
+        } finally {
+            close(out);
+        }
+    }
+
+    /**
+     * Rewrite the file with the latest outcome of each permission only.
+     */
+    private void compact() {
+        final File temporary = new File(file.getPath() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(temporary);
+            long written = 0;
+            for (Map.Entry<String, Byte> entry : outcomes.entrySet()) {
+                final byte[] name = entry.getKey().getBytes(UTF_8);
+                out.write(entry.getValue());
+                out.write(name.length);
+                out.write(name);
+                written += 2 + name.length;
+            }
+            out.getFD().sync();
+            close(out);
+            out = null;
+            if (temporary.renameTo(file)) {
+                size = written;
+            }
+        } catch (IOException e) {
+            PermissionJedi.logj(e);
+        } finally {
+            close(out);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                PermissionJedi.logj(e);
+            }
+        }
+    }
+}
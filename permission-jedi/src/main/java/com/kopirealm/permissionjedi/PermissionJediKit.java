@@ -1,10 +1,26 @@
 package com.kopirealm.permissionjedi;
 
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.Nullable;
+
 import java.io.Serializable;
+import java.util.ArrayList;
 
-public class PermissionJediKit implements Serializable {
+public class PermissionJediKit implements Serializable, Parcelable {
 
     public static final String EXTRA_KEY = "EXTRA_PERMISSION_JEDI_KIT";
+    public static final String EXTRA_SESSION_KEY = "EXTRA_PERMISSION_JEDI_SESSION";
+
+    private static final String[] ACTIONS = new String[]{
+            "",
+            PermissionJedi.ACTION_CHECK,
+            PermissionJedi.ACTION_REQUEST,
+            PermissionJedi.ACTION_REVOKE,
+            PermissionJedi.ACTION_APP_PERMISSIONS_SETTINGS,
+            PermissionJedi.ACTION_APP_NOTIFICATIONS_SETTINGS
+    };
 
     public final static PermissionJediKit renounce(Serializable input) {
         if (input instanceof PermissionJediKit) {
@@ -13,8 +29,24 @@ public class PermissionJediKit implements Serializable {
         return new PermissionJediKit();
     }
 
+    /**
+     * Recover a kit saved by {@link #writeToParcel(Parcel, int)}, e.g. after process death.
+     */
+    @Nullable
+    static PermissionJediKit restore(@Nullable Bundle extras) {
+        if (extras == null) {
+            return null;
+        }
+        extras.setClassLoader(PermissionJediKit.class.getClassLoader());
+        return extras.getParcelable(EXTRA_KEY);
+    }
+
     private String action = "";
     private String[] permissions = new String[0];
+    private int sessionId = PermissionJediSessions.NO_SESSION;
+
+    public PermissionJediKit() {
+    }
 
     protected final void setAction(String action) {
         this.action = action;
@@ -32,8 +64,99 @@ public class PermissionJediKit implements Serializable {
         return permissions;
     }
 
+    final void setSessionId(int sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
     public Serializable serialized() {
         return this;
     }
 
+    /**
+     * Registry permissions are written as a bitmask over {@link PermissionJediRegistry} IDs,
+     * only permissions unknown to this device are written as strings.
+     */
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        final long[] mask = new long[(registry.size() + 63) >>> 6];
+        final ArrayList<String> unregistered = new ArrayList<>();
+        for (String p : permissions) {
+            final int index = registry.indexOf(p);
+            if (index == PermissionJediRegistry.UNKNOWN) {
+                unregistered.add(p);
+            } else {
+                mask[index >>> 6] |= 1L << index;
+            }
+        }
+        final int actionIndex = indexOfAction(action);
+        dest.writeInt(actionIndex);
+        if (actionIndex < 0) {
+            dest.writeString(action);
+        }
+        dest.writeInt(sessionId);
+        dest.writeLong(PermissionJediSessions.processToken());
+        dest.writeLongArray(mask);
+        dest.writeStringArray(unregistered.toArray(new String[unregistered.size()]));
+    }
+
+    private PermissionJediKit(Parcel in) {
+        final int actionIndex = in.readInt();
+        action = (actionIndex < 0) ? in.readString() : ACTIONS[actionIndex];
+        sessionId = in.readInt();
+        // Saved before process death, the ID may now belong to an unrelated session
+        if (in.readLong() != PermissionJediSessions.processToken()) {
+            sessionId = PermissionJediSessions.NO_SESSION;
+        }
+        final long[] mask = in.createLongArray();
+        final String[] unregistered = in.createStringArray();
+        final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        final ArrayList<String> restored = new ArrayList<>();
+        // Ascending IDs keep LOCAL_NOTIFICATION in front
+        for (int i = 0; i < mask.length; i++) {
+            long word = mask[i];
+            while (word != 0) {
+                final int index = (i << 6) + Long.numberOfTrailingZeros(word);
+                if (index < registry.size()) {
+                    restored.add(registry.permissionAt(index));
+                }
+                word &= word - 1;
+            }
+        }
+        for (String p : unregistered) {
+            restored.add(p);
+        }
+        permissions = restored.toArray(new String[restored.size()]);
+    }
+
+    private static int indexOfAction(String action) {
+        for (int i = 0; i < ACTIONS.length; i++) {
+            if (ACTIONS[i].equals(action)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    public static final Creator<PermissionJediKit> CREATOR = new Creator<PermissionJediKit>() {
+        @Override
+        public PermissionJediKit createFromParcel(Parcel in) {
+            return new PermissionJediKit(in);
+        }
+
+        @Override
+        public PermissionJediKit[] newArray(int size) {
+            return new PermissionJediKit[size];
+        }
+    };
+
 }
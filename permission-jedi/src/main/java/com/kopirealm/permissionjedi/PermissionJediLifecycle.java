@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tracks whether the host app is in the foreground, and which activities get destroyed, using
+ * the activity callbacks of the Application. Installed once per Application on first use.
+ */
+final class PermissionJediLifecycle implements Application.ActivityLifecycleCallbacks {
+
+    interface Listener {
+        /**
+         * The app came back after all of its activities had stopped. Not called for the first
+         * Activity of the process, nothing could have changed behind its back before.
+         */
+        void onForeground();
+    }
+
+    interface DestroyListener {
+        void onActivityDestroyed(@NonNull Activity activity);
+    }
+
+    private static volatile PermissionJediLifecycle installed = null;
+
+    static PermissionJediLifecycle install(@NonNull Context context) {
+        final Application application = (Application) context.getApplicationContext();
+        PermissionJediLifecycle lifecycle = installed;
+        if (lifecycle == null || lifecycle.application != application) {
+            synchronized (PermissionJediLifecycle.class) {
+                lifecycle = installed;
+                if (lifecycle == null || lifecycle.application != application) {
+                    final PermissionJediLifecycle fresh = new PermissionJediLifecycle(application);
+                    if (context instanceof Activity) {
+                        // Started or about to start; forgotten again on its stop or destroy
+                        fresh.started.add((Activity) context);
+                        fresh.everStarted = true;
+                    }
+                    if (lifecycle != null) {
+                        lifecycle.application.unregisterActivityLifecycleCallbacks(lifecycle);
+                        fresh.listeners.addAll(lifecycle.listeners);
+                        fresh.destroyListeners.addAll(lifecycle.destroyListeners);
+                    }
+                    application.registerActivityLifecycleCallbacks(fresh);
+                    installed = lifecycle = fresh;
+                }
+            }
+        }
+        return lifecycle;
+    }
+
+    private final Application application;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<DestroyListener> destroyListeners = new CopyOnWriteArrayList<>();
+    // Started activities, held weakly; only touched on the main thread
+    private final Set<Activity> started = Collections.newSetFromMap(new WeakHashMap<Activity, Boolean>());
+    private boolean everStarted = false;
+
+    private PermissionJediLifecycle(Application application) {
+        this.application = application;
+    }
+
+    void addListener(@NonNull Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void addDestroyListener(@NonNull DestroyListener listener) {
+        destroyListeners.addIfAbsent(listener);
+    }
+
+    boolean isForeground() {
+        return !started.isEmpty();
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        final boolean returning = started.isEmpty() && everStarted;
+        everStarted = true;
+        if (started.add(activity) && returning) {
+            for (Listener listener : listeners) {
+                listener.onForeground();
+            }
+        }
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        started.remove(activity);
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        // Covers an Activity caller that finished without ever starting
+        started.remove(activity);
+        for (DestroyListener listener : destroyListeners) {
+            listener.onActivityDestroyed(activity);
+        }
+    }
+}
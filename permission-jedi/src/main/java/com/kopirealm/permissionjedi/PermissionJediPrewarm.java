@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pays the cold-start cost of the first flow ahead of time, on a background thread: the
+ * reflective registry scan, class loading of the hosts, the translucent theme, the dialog
+ * strings, the outcome journal and the grant state of every permission the app requests.
+ */
+final class PermissionJediPrewarm implements Runnable {
+
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+
+    private static final String[] CLASSES = new String[]{
+            "com.kopirealm.permissionjedi.PermissionJediActivity",
+            "com.kopirealm.permissionjedi.PermissionJediFragment",
+            "com.kopirealm.permissionjedi.PermissionJediEngine",
+            "com.kopirealm.permissionjedi.PermissionJediKit",
+            "com.kopirealm.permissionjedi.PermissionJediResult"
+    };
+
+    private static final int[] STRINGS = new int[]{
+            R.string.btn_go_now,
+            R.string.btn_not_now,
+            R.string.txt_permission_required,
+            R.string.txt_notification_required,
+            android.R.string.ok,
+            android.R.string.cancel
+    };
+
+    private final Context context;
+
+    private PermissionJediPrewarm(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Start prewarming once per process; later calls return right away.
+     */
+    static void start(@NonNull Context context) {
+        final Context application = context.getApplicationContext();
+        // Listeners go in on the calling thread, only the heavy work moves off it
+        PermissionJediLifecycle.install(application).addListener(PermissionJediCache.get());
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        final Thread thread = new Thread(new PermissionJediPrewarm(application), "PermissionJedi-prewarm");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        final long start = System.nanoTime();
+        try {
+            PermissionJediRegistry.get();
+            final ClassLoader loader = PermissionJediPrewarm.class.getClassLoader();
+            for (String name : CLASSES) {
+                Class.forName(name, true, loader);
+            }
+            final Resources.Theme theme = context.getResources().newTheme();
+            theme.applyStyle(R.style.Theme_AppCompat_Translucent, true);
+            final TypedArray attributes = theme.obtainStyledAttributes(new int[]{
+                    android.R.attr.windowIsTranslucent,
+                    android.R.attr.windowBackground
+            });
+            attributes.recycle();
+            for (int id : STRINGS) {
+                context.getString(id);
+            }
+            PermissionJediJournal.get(context);
+            PermissionJediInspector.checkPermission(context, requestedPermissions());
+        } catch (Exception e) {
+            PermissionJedi.logj(e);
+        }
+        if (PermissionJedi.DEBUG) {
+            PermissionJedi.logj("PermissionJediPrewarm::done in " + (System.nanoTime() - start) / 1000000L + " ms");
+        }
+    }
+
+    /**
+     * Every permission in the app's manifest, with {@link PermissionJedi.permission#LOCAL_NOTIFICATION} in front.
+     */
+    private String[] requestedPermissions() throws PackageManager.NameNotFoundException {
+        final PackageInfo info = context.getPackageManager()
+                .getPackageInfo(context.getPackageName(), PackageManager.GET_PERMISSIONS);
+        final String[] requested = (info.requestedPermissions != null) ? info.requestedPermissions : new String[0];
+        final String[] permissions = new String[requested.length + 1];
+        permissions[0] = PermissionJedi.permission.LOCAL_NOTIFICATION;
+        System.arraycopy(requested, 0, permissions, 1, requested.length);
+        return permissions;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Grant state of the UI process, shared with the app's other processes. Readers go through
+ * {@link PermissionJedi#isGrantedShared} and hold what they read until this provider notifies
+ * a change at {@link #contentUri}: after every {@link PermissionJediEngine} result and every
+ * return to the foreground.
+ */
+public class PermissionJediProvider extends ContentProvider {
+
+    static final String AUTHORITY_SUFFIX = ".permissionjedi";
+    static final String METHOD_GET = "get";
+    static final String EXTRA_PERMISSIONS = "permissions";
+    static final String EXTRA_STATES = "states";
+
+    /**
+     * @return URI that other processes can observe for grant changes
+     */
+    public static Uri contentUri(@NonNull Context context) {
+        return Uri.parse("content://" + context.getPackageName() + AUTHORITY_SUFFIX);
+    }
+
+    /**
+     * Tell every process that the grant state may have changed.
+     */
+    static void publish(@NonNull Context context) {
+        try {
+            context.getContentResolver().notifyChange(contentUri(context), null);
+        } catch (Exception e) {
+            PermissionJedi.logj(e);
+        }
+    }
+
+    private final AtomicBoolean listening = new AtomicBoolean(false);
+
+    /**
+     * Runs on the main thread before {@code Application.onCreate()} of every app using this
+     * library, so nothing is set up here; see {@link #listen()}.
+     */
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    /**
+     * Start publishing on every return to the foreground, once another process reads from us.
+     */
+    private void listen() {
+        if (!listening.compareAndSet(false, true)) {
+            return;
+        }
+        final Context context = getContext().getApplicationContext();
+        final PermissionJediLifecycle lifecycle = PermissionJediLifecycle.install(context);
+        lifecycle.addListener(PermissionJediCache.get());
+        lifecycle.addListener(new PermissionJediLifecycle.Listener() {
+            @Override
+            public void onForeground() {
+                publish(context);
+            }
+        });
+    }
+
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        if (!METHOD_GET.equals(method) || extras == null) {
+            return null;
+        }
+        listen();
+        final String[] permissions = extras.getStringArray(EXTRA_PERMISSIONS);
+        if (permissions == null) {
+            return null;
+        }
+        final int[] states = new int[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            states[i] = PermissionJediInspector.isGranted(getContext(), permissions[i])
+                    ? PermissionJediCache.GRANTED
+                    : PermissionJediCache.DENIED;
+        }
+        final Bundle result = new Bundle();
+        result.putIntArray(EXTRA_STATES, states);
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection, @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException();
+    }
+}
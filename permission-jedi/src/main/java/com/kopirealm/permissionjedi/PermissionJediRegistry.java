@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.Manifest;
+import android.support.annotation.NonNull;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Process-wide, immutable table of every permission known to this device.
+ * <p/>
+ * {@code Manifest.permission} is scanned once on first use; afterwards each permission is
+ * addressed by a dense integer ID. ID {@link #LOCAL_NOTIFICATION} is reserved for
+ * {@link PermissionJedi.permission#LOCAL_NOTIFICATION} so it always sorts first.
+ */
+final class PermissionJediRegistry {
+
+    static final int UNKNOWN = -1;
+    static final int LOCAL_NOTIFICATION = 0;
+
+    private static final class Holder {
+        private static final PermissionJediRegistry INSTANCE = new PermissionJediRegistry();
+    }
+
+    static PermissionJediRegistry get() {
+        return Holder.INSTANCE;
+    }
+
+    private final String[] table;
+    private final HashMap<String, Integer> indices;
+
+    private PermissionJediRegistry() {
+        final ArrayList<String> androidPermissions = new ArrayList<>();
+        try {
+            for (Field field : Manifest.permission.class.getFields()) {
+                // Only the constants, tooling may add fields of its own
+                if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class) {
+                    continue;
+                }
+                String permission = (String) field.get(null);
+                if (permission.startsWith("android.permission") && !androidPermissions.contains(permission)) {
+                    androidPermissions.add(permission);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+        }
+        Collections.sort(androidPermissions);
+        androidPermissions.add(LOCAL_NOTIFICATION, PermissionJedi.permission.LOCAL_NOTIFICATION);
+        table = androidPermissions.toArray(new String[androidPermissions.size()]);
+        indices = new HashMap<>(table.length * 2);
+        for (int i = 0; i < table.length; i++) {
+            indices.put(table[i], i);
+        }
+    }
+
+    /**
+     * @return ID of the permission, or {@link #UNKNOWN} if this device does not define it
+     */
+    int indexOf(@NonNull String permission) {
+        final Integer index = indices.get(permission);
+        return (index == null) ? UNKNOWN : index;
+    }
+
+    boolean contains(@NonNull String permission) {
+        return indices.containsKey(permission);
+    }
+
+    boolean isLocalNotification(@NonNull String permission) {
+        return indexOf(permission) == LOCAL_NOTIFICATION;
+    }
+
+    String permissionAt(int index) {
+        return table[index];
+    }
+
+    int size() {
+        return table.length;
+    }
+
+    /**
+     * @return true when no {@code android.permission} constant could be read from this device
+     */
+    boolean isEmpty() {
+        return table.length <= LOCAL_NOTIFICATION + 1;
+    }
+
+    /**
+     * @return canonical instance of the permission string, or the input itself if unknown
+     */
+    String intern(@NonNull String permission) {
+        final int index = indexOf(permission);
+        return (index == UNKNOWN) ? permission : table[index];
+    }
+
+    HashSet<String> androidPermissions() {
+        final HashSet<String> androidPermissions = new HashSet<>(table.length * 2);
+        for (int i = LOCAL_NOTIFICATION + 1; i < table.length; i++) {
+            androidPermissions.add(table[i]);
+        }
+        return androidPermissions;
+    }
+}
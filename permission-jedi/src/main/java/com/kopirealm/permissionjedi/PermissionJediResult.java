@@ -0,0 +1,422 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.content.pm.PackageManager;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Immutable outcome of a permission flow, kept as a pair of bitsets over
+ * {@link PermissionJediRegistry} IDs: which permissions were reviewed, and which were granted.
+ * <p/>
+ * For {@link PermissionJedi#ACTION_REVOKE} a set bit means "revoked by policy", mirroring the
+ * value of the legacy {@code HashMap<String, Boolean>}.
+ * <p/>
+ * Denied permissions are walked without allocation through a cursor:
+ * <pre>
+ * for (int i = result.nextDenied(0); i >= 0; i = result.nextDenied(i + 1)) {
+ *     String permission = result.permissionAt(i);
+ * }
+ * </pre>
+ * After a trip to settings the result also carries the state from before it, see
+ * {@link #nextNewlyGranted(int)}, {@link #nextNewlyDenied(int)} and {@link #nextUnchanged(int)}.
+ */
+public final class PermissionJediResult {
+
+    private static final long[] NO_BITS = new long[0];
+    private static final String[] NO_PERMISSIONS = new String[0];
+
+    static final PermissionJediResult EMPTY = new Builder().build();
+
+    private final PermissionJediRegistry registry;
+    private final long[] reviewed;
+    private final long[] granted;
+    // Permissions unknown to the registry, addressed after the registry range
+    private final String[] unregistered;
+    private final long[] unregisteredGranted;
+    private final boolean timedOut;
+    private final PermissionJediResult baseline;
+
+    private PermissionJediResult(Builder builder) {
+        registry = builder.registry;
+        reviewed = builder.reviewed.clone();
+        granted = builder.granted.clone();
+        unregistered = builder.unregistered.isEmpty()
+                ? NO_PERMISSIONS
+                : builder.unregistered.toArray(new String[builder.unregistered.size()]);
+        unregisteredGranted = bits(builder.unregisteredGranted);
+        timedOut = builder.timedOut;
+        baseline = builder.baseline;
+    }
+
+    /**
+     * Build from the arrays handed to {@code onRequestPermissionsResult}.
+     */
+    static PermissionJediResult fromGrantResults(@NonNull String[] permissions, @NonNull int[] grantResults) {
+        final Builder builder = new Builder();
+        for (int i = 0; i < permissions.length; i++) {
+            builder.put(permissions[i], grantResults[i] == PackageManager.PERMISSION_GRANTED);
+        }
+        return builder.build();
+    }
+
+    public boolean contains(@NonNull String permission) {
+        final int index = registry.indexOf(permission);
+        if (index != PermissionJediRegistry.UNKNOWN) {
+            return test(reviewed, index);
+        }
+        return indexOfUnregistered(permission) >= 0;
+    }
+
+    /**
+     * @return true if the permission was reviewed and granted
+     */
+    public boolean isGranted(@NonNull String permission) {
+        final int index = registry.indexOf(permission);
+        if (index != PermissionJediRegistry.UNKNOWN) {
+            return test(granted, index);
+        }
+        final int position = indexOfUnregistered(permission);
+        return position >= 0 && test(unregisteredGranted, position);
+    }
+
+    /**
+     * @return true if every reviewed permission was granted, also true when nothing was reviewed
+     */
+    public boolean allGranted() {
+        for (int i = 0; i < reviewed.length; i++) {
+            if ((reviewed[i] & ~granted[i]) != 0) {
+                return false;
+            }
+        }
+        for (int i = 0; i < unregistered.length; i++) {
+            if (!test(unregisteredGranted, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the flow ran past its deadline, the result is then what the last check
+     * found when it was torn down
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return true if the state from before the flow is known, so changes can be walked
+     */
+    public boolean hasBaseline() {
+        return baseline != null;
+    }
+
+    /**
+     * @return true if the permission is granted now but was not before the flow
+     */
+    public boolean isNewlyGranted(@NonNull String permission) {
+        return baseline != null && isGranted(permission) && !baseline.isGranted(permission);
+    }
+
+    /**
+     * @return true if the permission was granted before the flow but is not anymore
+     */
+    public boolean isNewlyDenied(@NonNull String permission) {
+        return baseline != null && contains(permission) && !isGranted(permission) && baseline.isGranted(permission);
+    }
+
+    /**
+     * @return cursor of the next permission granted during the flow, or -1 without a baseline
+     */
+    public int nextNewlyGranted(int from) {
+        return nextChange(from, CHANGE_GRANTED);
+    }
+
+    /**
+     * @return cursor of the next permission revoked during the flow, or -1 without a baseline
+     */
+    public int nextNewlyDenied(int from) {
+        return nextChange(from, CHANGE_DENIED);
+    }
+
+    /**
+     * @return cursor of the next permission that kept its state, or -1 without a baseline
+     */
+    public int nextUnchanged(int from) {
+        return nextChange(from, CHANGE_NONE);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int size() {
+        int size = unregistered.length;
+        for (long word : reviewed) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    /**
+     * @return cursor of the next reviewed permission at or after {@code from}, or -1
+     */
+    public int nextPermission(int from) {
+        return next(from, false, false);
+    }
+
+    /**
+     * @return cursor of the next granted permission at or after {@code from}, or -1
+     */
+    public int nextGranted(int from) {
+        return next(from, true, true);
+    }
+
+    /**
+     * @return cursor of the next denied permission at or after {@code from}, or -1
+     */
+    public int nextDenied(int from) {
+        return next(from, true, false);
+    }
+
+    /**
+     * @param cursor value returned by {@link #nextPermission(int)}, {@link #nextGranted(int)}
+     *               or {@link #nextDenied(int)}
+     */
+    public String permissionAt(int cursor) {
+        final int registered = registry.size();
+        return (cursor < registered) ? registry.permissionAt(cursor) : unregistered[cursor - registered];
+    }
+
+    /**
+     * Copy into the map shape delivered to {@link PermissionJedi.PermissionJediDelegate}.
+     */
+    @NonNull
+    public HashMap<String, Boolean> toMap() {
+        final HashMap<String, Boolean> permits = new HashMap<>();
+        for (int i = nextPermission(0); i >= 0; i = nextPermission(i + 1)) {
+            permits.put(permissionAt(i), isGrantedAt(i));
+        }
+        return permits;
+    }
+
+    /**
+     * @return only the given permissions, those not reviewed here are left out
+     */
+    @NonNull
+    PermissionJediResult subset(@NonNull String... permissions) {
+        final Builder builder = new Builder()
+                .timedOut(timedOut)
+                .baseline((baseline != null) ? baseline.subset(permissions) : null);
+        for (String p : permissions) {
+            if (contains(p)) {
+                builder.put(p, isGranted(p));
+            }
+        }
+        return builder.build();
+    }
+
+    boolean isGrantedAt(int cursor) {
+        final int registered = registry.size();
+        return (cursor < registered) ? test(granted, cursor) : test(unregisteredGranted, cursor - registered);
+    }
+
+    private int next(int from, boolean filter, boolean wanted) {
+        final int registered = registry.size();
+        int cursor = Math.max(from, 0);
+        for (int word = cursor >>> 6; word < reviewed.length && cursor < registered; word++) {
+            long bits = reviewed[word];
+            if (filter) {
+                bits &= wanted ? granted[word] : ~granted[word];
+            }
+            bits &= -1L << (cursor & 63);
+            if (bits != 0) {
+                final int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return (index < registered) ? index : -1;
+            }
+            cursor = (word + 1) << 6;
+        }
+        for (int i = Math.max(from - registered, 0); i < unregistered.length; i++) {
+            if (!filter || test(unregisteredGranted, i) == wanted) {
+                return registered + i;
+            }
+        }
+        return -1;
+    }
+
+    private static final int CHANGE_NONE = 0;
+    private static final int CHANGE_GRANTED = 1;
+    private static final int CHANGE_DENIED = 2;
+
+    private int nextChange(int from, int change) {
+        if (baseline == null) {
+            return -1;
+        }
+        final int registered = registry.size();
+        int cursor = Math.max(from, 0);
+        for (int word = cursor >>> 6; word < reviewed.length && cursor < registered; word++) {
+            final long before = (word < baseline.granted.length) ? baseline.granted[word] : 0L;
+            long bits = reviewed[word];
+            if (change == CHANGE_GRANTED) {
+                bits &= granted[word] & ~before;
+            } else if (change == CHANGE_DENIED) {
+                bits &= ~granted[word] & before;
+            } else {
+                bits &= ~(granted[word] ^ before);
+            }
+            bits &= -1L << (cursor & 63);
+            if (bits != 0) {
+                final int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return (index < registered) ? index : -1;
+            }
+            cursor = (word + 1) << 6;
+        }
+        for (int i = Math.max(from - registered, 0); i < unregistered.length; i++) {
+            final boolean now = test(unregisteredGranted, i);
+            final boolean before = baseline.isGranted(unregistered[i]);
+            if ((change == CHANGE_GRANTED && now && !before)
+                    || (change == CHANGE_DENIED && !now && before)
+                    || (change == CHANGE_NONE && now == before)) {
+                return registered + i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOfUnregistered(String permission) {
+        for (int i = 0; i < unregistered.length; i++) {
+            if (unregistered[i].equals(permission)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean test(long[] bits, int index) {
+        final int word = index >>> 6;
+        return word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+
+    private static long[] bits(ArrayList<Boolean> values) {
+        if (values.isEmpty()) {
+            return NO_BITS;
+        }
+        final long[] bits = new long[(values.size() + 63) >>> 6];
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i)) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    @Override
+    public String toString() {
+        return PermissionJediResult.class.getSimpleName() + (timedOut ? "(timed out)" : "") + toMap();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PermissionJediResult)) return false;
+        final PermissionJediResult that = (PermissionJediResult) o;
+        return timedOut == that.timedOut
+                && ((baseline == null) ? that.baseline == null : baseline.equals(that.baseline))
+                && Arrays.equals(reviewed, that.reviewed)
+                && Arrays.equals(granted, that.granted)
+                && Arrays.equals(unregistered, that.unregistered)
+                && Arrays.equals(unregisteredGranted, that.unregisteredGranted);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(reviewed);
+        result = 31 * result + Arrays.hashCode(granted);
+        result = 31 * result + Arrays.hashCode(unregistered);
+        return result;
+    }
+
+    static final class Builder {
+        private final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        private final long[] reviewed = new long[(registry.size() + 63) >>> 6];
+        private final long[] granted = new long[reviewed.length];
+        private final ArrayList<String> unregistered = new ArrayList<>(0);
+        private final ArrayList<Boolean> unregisteredGranted = new ArrayList<>(0);
+        private boolean timedOut = false;
+        private PermissionJediResult baseline = null;
+
+        Builder put(@NonNull String permission, boolean grant) {
+            final int index = registry.indexOf(permission);
+            if (index != PermissionJediRegistry.UNKNOWN) {
+                reviewed[index >>> 6] |= 1L << index;
+                if (grant) {
+                    granted[index >>> 6] |= 1L << index;
+                } else {
+                    granted[index >>> 6] &= ~(1L << index);
+                }
+                return this;
+            }
+            final int position = unregistered.indexOf(permission);
+            if (position >= 0) {
+                unregisteredGranted.set(position, grant);
+            } else {
+                unregistered.add(permission);
+                unregisteredGranted.add(grant);
+            }
+            return this;
+        }
+
+        Builder timedOut(boolean timedOut) {
+            this.timedOut = timedOut;
+            return this;
+        }
+
+        /**
+         * @param baseline state from before the flow, to tell what it changed
+         */
+        Builder baseline(PermissionJediResult baseline) {
+            this.baseline = baseline;
+            return this;
+        }
+
+        Builder putAll(@NonNull PermissionJediResult result) {
+            timedOut |= result.timedOut;
+            if (baseline == null) {
+                baseline = result.baseline;
+            }
+            for (int i = result.nextPermission(0); i >= 0; i = result.nextPermission(i + 1)) {
+                put(result.permissionAt(i), result.isGrantedAt(i));
+            }
+            return this;
+        }
+
+        PermissionJediResult build() {
+            return new PermissionJediResult(this);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * Runs sessions one at a time, so no two flows show their dialogs over each other. Waiting
+ * sessions start by priority, then in the order they were submitted. A session that is
+ * cancelled, or whose caller is destroyed, while waiting never launches; a merged one moves to
+ * another of its callers instead.
+ */
+final class PermissionJediScheduler implements PermissionJediLifecycle.DestroyListener, Runnable {
+
+    private static final class Holder {
+        private static final PermissionJediScheduler INSTANCE = new PermissionJediScheduler();
+    }
+
+    static PermissionJediScheduler get() {
+        return Holder.INSTANCE;
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private long sequence = 0;
+    private PermissionJedi active = null;
+
+    private PermissionJediScheduler() {
+    }
+
+    synchronized void submit(@NonNull PermissionJedi jedi, @NonNull String action, @NonNull String[] permissions) {
+        queue.add(new Entry(jedi, action, permissions, sequence++));
+        if (active == null) {
+            next();
+        } else if (PermissionJedi.DEBUG) {
+            PermissionJedi.logj("PermissionJediScheduler::queued " + action + ", " + queue.size() + " waiting");
+        }
+    }
+
+    private synchronized void next() {
+        Entry entry;
+        while (active == null && (entry = queue.poll()) != null) {
+            // Set first, the session may already be over when start() returns
+            active = entry.jedi;
+            if (!entry.jedi.start(entry.action, entry.permissions)) {
+                active = null;
+                // Never launched, nothing else would let its future go
+                entry.jedi.onSessionClosed();
+            }
+        }
+    }
+
+    /**
+     * The running session of this jedi delivered its result or went away; the next one may start.
+     */
+    synchronized void finished(@NonNull PermissionJedi jedi) {
+        if (active == jedi) {
+            active = null;
+            handler.post(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        next();
+    }
+
+    /**
+     * @return true if the jedi, on its own or merged with others, was still waiting and will
+     * never launch
+     */
+    boolean cancel(@NonNull PermissionJedi jedi) {
+        boolean cancelled = false;
+        synchronized (this) {
+            for (Iterator<Entry> it = queue.iterator(); it.hasNext(); ) {
+                final PermissionJedi waiting = it.next().jedi;
+                if (waiting == jedi) {
+                    it.remove();
+                    cancelled = true;
+                    continue;
+                }
+                final PermissionJediCoalescer.Batch batch = waiting.getBatch();
+                if (batch != null && batch.withdraw(jedi)) {
+                    cancelled = true;
+                    if (batch.isEmpty()) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+        return cancelled;
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+        final ArrayList<PermissionJedi> owned = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : queue) {
+                if (entry.jedi.isOwnedBy(activity)) {
+                    owned.add(entry.jedi);
+                }
+            }
+        }
+        // Outside the lock, callers let go may submit again
+        for (PermissionJedi jedi : owned) {
+            if (!jedi.rehost(activity) && cancel(jedi)) {
+                jedi.onSessionClosed();
+            }
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final PermissionJedi jedi;
+        private final String action;
+        private final String[] permissions;
+        private final int priority;
+        private final long sequence;
+
+        private Entry(PermissionJedi jedi, String action, String[] permissions, long sequence) {
+            this.jedi = jedi;
+            this.action = action;
+            this.permissions = permissions;
+            this.priority = jedi.getPriority();
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(@NonNull Entry other) {
+            if (priority != other.priority) {
+                return (priority > other.priority) ? -1 : 1;
+            }
+            return (sequence < other.sequence) ? -1 : ((sequence == other.sequence) ? 0 : 1);
+        }
+    }
+}
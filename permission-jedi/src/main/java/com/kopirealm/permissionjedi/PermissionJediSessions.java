@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-flight permission flows keyed by session ID. The ID travels to
+ * {@link PermissionJediActivity} or {@link PermissionJediFragment} inside the
+ * {@link PermissionJediKit}, so every host resolves its own caller without any global lock.
+ * <p/>
+ * A session is closed when its host goes away, or as soon as the
+ * calling Activity is destroyed, so no caller outlives its session. A merged session moves to
+ * one of its callers still alive instead.
+ */
+final class PermissionJediSessions {
+
+    static final int NO_SESSION = 0;
+
+    // IDs restart in every process, a kit saved by another process carries a stale one
+    private static final long PROCESS_TOKEN = new Random().nextLong();
+    private static final AtomicInteger sequence = new AtomicInteger(NO_SESSION);
+    private static final ConcurrentHashMap<Integer, PermissionJedi> sessions = new ConcurrentHashMap<>();
+
+    private static final PermissionJediLifecycle.DestroyListener reaper = new PermissionJediLifecycle.DestroyListener() {
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+            for (Map.Entry<Integer, PermissionJedi> session : sessions.entrySet()) {
+                final PermissionJedi jedi = session.getValue();
+                if (!jedi.isOwnedBy(activity)) {
+                    continue;
+                }
+                if (jedi.rehost(activity)) {
+                    if (PermissionJedi.DEBUG) {
+                        PermissionJedi.logj("PermissionJediSessions::host destroyed, moved " + session.getKey());
+                    }
+                } else if (sessions.remove(session.getKey(), jedi)) {
+                    if (PermissionJedi.DEBUG) {
+                        PermissionJedi.logj("PermissionJediSessions::caller destroyed, closing " + session.getKey());
+                    }
+                    jedi.onSessionClosed();
+                }
+            }
+        }
+    };
+
+    private PermissionJediSessions() {
+    }
+
+    static PermissionJediLifecycle.DestroyListener reaper() {
+        return reaper;
+    }
+
+    /**
+     * Tells session IDs of this process from those of a process that died since.
+     */
+    static long processToken() {
+        return PROCESS_TOKEN;
+    }
+
+    static int open(PermissionJedi jedi) {
+        int sessionId;
+        do {
+            sessionId = sequence.incrementAndGet();
+        } while (sessionId == NO_SESSION);
+        sessions.put(sessionId, jedi);
+        return sessionId;
+    }
+
+    @Nullable
+    static PermissionJedi resolve(int sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    @Nullable
+    static PermissionJedi close(int sessionId) {
+        return sessions.remove(sessionId);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reader side of {@link PermissionJediProvider}, one per process. A permission costs one call
+ * into the UI process the first time, then nothing until the provider notifies a change.
+ */
+final class PermissionJediSharedState extends ContentObserver {
+
+    private static volatile PermissionJediSharedState instance = null;
+
+    private final Context context;
+    private final ConcurrentHashMap<String, Boolean> states = new ConcurrentHashMap<>();
+
+    private PermissionJediSharedState(Context context) {
+        super(null);
+        this.context = context;
+    }
+
+    static PermissionJediSharedState get(@NonNull Context context) {
+        PermissionJediSharedState state = instance;
+        if (state == null) {
+            synchronized (PermissionJediSharedState.class) {
+                state = instance;
+                if (state == null) {
+                    state = new PermissionJediSharedState(context.getApplicationContext());
+                    state.context.getContentResolver().registerContentObserver(
+                            PermissionJediProvider.contentUri(state.context), false, state);
+                    instance = state;
+                }
+            }
+        }
+        return state;
+    }
+
+    boolean isGranted(@NonNull String permission) {
+        final Boolean granted = states.get(permission);
+        if (granted != null) {
+            return granted;
+        }
+        final boolean fetched = fetch(permission);
+        states.put(permission, fetched);
+        return fetched;
+    }
+
+    private boolean fetch(@NonNull String permission) {
+        try {
+            final Bundle extras = new Bundle();
+            extras.putStringArray(PermissionJediProvider.EXTRA_PERMISSIONS, new String[]{permission});
+            final Bundle result = context.getContentResolver().call(PermissionJediProvider.contentUri(context),
+                    PermissionJediProvider.METHOD_GET, null, extras);
+            final int[] fetched = (result != null) ? result.getIntArray(PermissionJediProvider.EXTRA_STATES) : null;
+            if (fetched != null && fetched.length == 1) {
+                return fetched[0] == PermissionJediCache.GRANTED;
+            }
+        } catch (Exception e) {
+            PermissionJedi.logj(e);
+        }
+        // Provider unreachable, ask the system directly
+        return PermissionJediInspector.checkPermission(context, permission).isGranted(permission);
+    }
+
+    @Override
+    public void onChange(boolean selfChange) {
+        states.clear();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Grant state of every permission the app requests, read with one
+ * {@link PackageManager#getPackageInfo} call instead of one binder call per permission.
+ */
+final class PermissionJediSnapshot {
+
+    static final int UNKNOWN = -1;
+    static final int DENIED = 0;
+    static final int GRANTED = 1;
+
+    // Indexed by registry ID and offset by one, so a zero entry means not requested
+    private final byte[] states;
+    private final String[] requested;
+    private final int[] flags;
+
+    private PermissionJediSnapshot(@NonNull String[] requested, @NonNull int[] flags) {
+        final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        this.requested = requested;
+        this.flags = flags;
+        this.states = new byte[registry.size()];
+        for (int i = 0; i < requested.length; i++) {
+            final int id = registry.indexOf(requested[i]);
+            if (id >= 0) {
+                states[id] = (byte) (((flags[i] & PackageInfo.REQUESTED_PERMISSION_GRANTED) != 0) ? GRANTED + 1 : DENIED + 1);
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot, or null where the platform does not report grant flags
+     */
+    @Nullable
+    static PermissionJediSnapshot take(@NonNull Context context) {
+        try {
+            final PackageInfo info = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), PackageManager.GET_PERMISSIONS);
+            if (info.requestedPermissions == null || info.requestedPermissionsFlags == null
+                    || info.requestedPermissions.length != info.requestedPermissionsFlags.length) {
+                return null;
+            }
+            return new PermissionJediSnapshot(info.requestedPermissions, info.requestedPermissionsFlags);
+        } catch (Exception e) {
+            PermissionJedi.logj(e);
+            return null;
+        }
+    }
+
+    /**
+     * @return {@link #GRANTED}, {@link #DENIED}, or {@link #UNKNOWN} if the app does not request it
+     */
+    int state(@NonNull String permission) {
+        final int id = PermissionJediRegistry.get().indexOf(permission);
+        if (id >= 0) {
+            return states[id] - 1;
+        }
+        for (int i = 0; i < requested.length; i++) {
+            if (requested[i].equals(permission)) {
+                return ((flags[i] & PackageInfo.REQUESTED_PERMISSION_GRANTED) != 0) ? GRANTED : DENIED;
+            }
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Permissions the app declares, as generated at build time by {@code permission-table.gradle}
+ * into {@value #GENERATED_CLASS}. Loaded once; every lookup after that is a binary search.
+ * Apps that do not apply the script get an unavailable table.
+ */
+final class PermissionJediTable {
+
+    static final String GENERATED_CLASS = "com.kopirealm.permissionjedi.PermissionJediDeclaredPermissions";
+
+    // android.content.pm.PermissionInfo protection levels
+    static final int PROTECTION_UNKNOWN = -1;
+    static final int PROTECTION_NORMAL = 0;
+    static final int PROTECTION_DANGEROUS = 1;
+    static final int PROTECTION_SIGNATURE = 2;
+
+    private static final class Holder {
+        private static final PermissionJediTable INSTANCE = new PermissionJediTable();
+    }
+
+    static PermissionJediTable get() {
+        return Holder.INSTANCE;
+    }
+
+    private final String[] permissions;
+    private final int[] protectionLevels;
+    private final String[] groups;
+
+    private PermissionJediTable() {
+        String[] permissions = null;
+        int[] protectionLevels = null;
+        String[] groups = null;
+        try {
+            final Class<?> generated = Class.forName(GENERATED_CLASS);
+            permissions = (String[]) generated.getField("PERMISSIONS").get(null);
+            protectionLevels = (int[]) generated.getField("PROTECTION_LEVELS").get(null);
+            groups = (String[]) generated.getField("GROUPS").get(null);
+        } catch (ClassNotFoundException e) {
+            PermissionJedi.logj("PermissionJediTable::no generated table");
+        } catch (Exception e) {
+            PermissionJedi.logj(e);
+            permissions = null;
+        }
+        if (permissions != null && protectionLevels != null && groups != null
+                && permissions.length == protectionLevels.length && permissions.length == groups.length) {
+            this.permissions = permissions;
+            this.protectionLevels = protectionLevels;
+            this.groups = groups;
+        } else {
+            this.permissions = null;
+            this.protectionLevels = null;
+            this.groups = null;
+        }
+    }
+
+    /**
+     * @return true if the app applied {@code permission-table.gradle}
+     */
+    boolean isAvailable() {
+        return permissions != null;
+    }
+
+    boolean isDeclared(@NonNull String permission) {
+        return indexOf(permission) >= 0;
+    }
+
+    /**
+     * @return protection level of a declared permission, or {@link #PROTECTION_UNKNOWN}
+     */
+    int protectionLevel(@NonNull String permission) {
+        final int index = indexOf(permission);
+        return (index >= 0) ? protectionLevels[index] : PROTECTION_UNKNOWN;
+    }
+
+    /**
+     * @return permission group of a declared permission, or null if it has none
+     */
+    @Nullable
+    String group(@NonNull String permission) {
+        final int index = indexOf(permission);
+        return (index >= 0) ? groups[index] : null;
+    }
+
+    private int indexOf(@NonNull String permission) {
+        return (permissions == null) ? -1 : Arrays.binarySearch(permissions, permission);
+    }
+}
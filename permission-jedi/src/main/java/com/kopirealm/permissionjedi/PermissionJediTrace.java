@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Typed, timestamped events for each phase of a permission flow.
+ * <p/>
+ * Nothing is allocated or timed unless a {@link Listener} is installed through
+ * {@link PermissionJedi#setTraceListener(Listener)}. Events of flows that never launch an
+ * Activity carry {@link #NO_SESSION}.
+ */
+public final class PermissionJediTrace {
+
+    public static final int NO_SESSION = PermissionJediSessions.NO_SESSION;
+
+    public enum Event {
+        SESSION_CREATED,
+        ACTIVITY_LAUNCHED,
+        SYSTEM_DIALOG_SHOWN,
+        RESULT_RECEIVED,
+        DELEGATE_INVOKED
+    }
+
+    public interface Listener {
+        /**
+         * @param timestampNanos {@link System#nanoTime()} at the moment of the event
+         */
+        void onEvent(@NonNull Event event, int sessionId, long timestampNanos);
+    }
+
+    private static volatile Listener listener = null;
+
+    private PermissionJediTrace() {
+    }
+
+    static void setListener(Listener listener) {
+        PermissionJediTrace.listener = listener;
+    }
+
+    static void emit(@NonNull Event event, int sessionId) {
+        final Listener l = listener;
+        if (l != null) {
+            l.onEvent(event, sessionId, System.nanoTime());
+        }
+    }
+}
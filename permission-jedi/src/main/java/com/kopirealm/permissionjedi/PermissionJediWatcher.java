@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2018 Kopihao
+ * <p/>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.kopirealm.permissionjedi;
+
+import android.annotation.TargetApi;
+import android.app.AppOpsManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One watcher shared by every {@link PermissionJedi.PermissionJediObserver} in the process.
+ * <p/>
+ * Changes are pushed by {@link AppOpsManager} where the platform maps a permission to an app op,
+ * and otherwise caught by a single re-check when the app returns to the foreground. Observers
+ * are only told about permissions whose state actually changed.
+ */
+final class PermissionJediWatcher implements PermissionJediLifecycle.Listener, Runnable {
+
+    private static final class Holder {
+        private static final PermissionJediWatcher INSTANCE = new PermissionJediWatcher();
+    }
+
+    static PermissionJediWatcher get() {
+        return Holder.INSTANCE;
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final HashSet<String> watchedOps = new HashSet<>();
+    private Context context = null;
+    private Object opsWatcher = null;
+    private PermissionJediResult last = PermissionJediResult.EMPTY;
+    private boolean recheckPending = false;
+
+    private PermissionJediWatcher() {
+    }
+
+    synchronized PermissionJedi.Subscription subscribe(@NonNull Context context, @NonNull PermissionJedi.PermissionJediObserver observer, @NonNull String... permissions) {
+        final PermissionJediRegistry registry = PermissionJediRegistry.get();
+        final String[] interned = new String[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            interned[i] = registry.intern(permissions[i]);
+        }
+        final Subscription subscription = new Subscription(observer, interned);
+        if (this.context == null) {
+            this.context = context.getApplicationContext();
+        }
+        if (subscriptions.isEmpty()) {
+            PermissionJediLifecycle.install(context).addListener(this);
+        }
+        subscriptions.add(subscription);
+        // Baseline for the new permissions, nothing is emitted for it
+        final PermissionJediResult.Builder baseline = new PermissionJediResult.Builder().putAll(last);
+        for (String p : interned) {
+            if (!last.contains(p)) {
+                baseline.put(p, PermissionJediInspector.checkPermission(this.context, p).isGranted(p));
+            }
+        }
+        last = baseline.build();
+        if (!PermissionJedi.isAndroidPreM()) {
+            watchOps(interned);
+        }
+        return subscription;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        if (subscriptions.remove(subscription) && subscriptions.isEmpty()) {
+            PermissionJediLifecycle.install(context).removeListener(this);
+            if (!PermissionJedi.isAndroidPreM()) {
+                stopWatchingOps();
+            }
+            last = PermissionJediResult.EMPTY;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    private void watchOps(String[] permissions) {
+        final AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+        if (appOps == null) {
+            return;
+        }
+        if (opsWatcher == null) {
+            opsWatcher = new AppOpsManager.OnOpChangedListener() {
+                @Override
+                public void onOpChanged(String op, String packageName) {
+                    if (context.getPackageName().equals(packageName)) {
+                        scheduleRecheck();
+                    }
+                }
+            };
+        }
+        for (String p : permissions) {
+            final String op = AppOpsManager.permissionToOp(p);
+            if (op != null && watchedOps.add(op)) {
+                appOps.startWatchingMode(op, context.getPackageName(), (AppOpsManager.OnOpChangedListener) opsWatcher);
+            }
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    private void stopWatchingOps() {
+        final AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+        if (appOps != null && opsWatcher != null) {
+            appOps.stopWatchingMode((AppOpsManager.OnOpChangedListener) opsWatcher);
+        }
+        watchedOps.clear();
+    }
+
+    /**
+     * Re-check on the next main loop pass, also called once a flow of this library got its
+     * answer, since a grant from the system dialog neither leaves the foreground nor moves an
+     * app op.
+     */
+    synchronized void scheduleRecheck() {
+        if (!recheckPending && !subscriptions.isEmpty()) {
+            recheckPending = true;
+            handler.post(this);
+        }
+    }
+
+    @Override
+    public void onForeground() {
+        scheduleRecheck();
+    }
+
+    @Override
+    public void run() {
+        final PermissionJediResult previous;
+        final PermissionJediResult current;
+        synchronized (this) {
+            recheckPending = false;
+            if (subscriptions.isEmpty()) {
+                return;
+            }
+            final LinkedHashSet<String> watched = new LinkedHashSet<>();
+            for (Subscription subscription : subscriptions) {
+                for (String p : subscription.permissions) {
+                    watched.add(p);
+                }
+            }
+            previous = last;
+            current = PermissionJediInspector.checkPermission(context, watched.toArray(new String[watched.size()]));
+            last = current;
+        }
+        for (int i = current.nextPermission(0); i >= 0; i = current.nextPermission(i + 1)) {
+            final String p = current.permissionAt(i);
+            final boolean granted = current.isGrantedAt(i);
+            if (previous.contains(p) && previous.isGranted(p) == granted) {
+                continue;
+            }
+            if (PermissionJedi.DEBUG) {
+                PermissionJedi.logj("PermissionJediWatcher::" + p + "::" + granted);
+            }
+            for (Subscription subscription : subscriptions) {
+                if (subscription.watches(p)) {
+                    subscription.observer.onPermissionChanged(p, granted);
+                }
+            }
+        }
+    }
+
+    private final class Subscription implements PermissionJedi.Subscription {
+        private final PermissionJedi.PermissionJediObserver observer;
+        private final String[] permissions;
+
+        private Subscription(PermissionJedi.PermissionJediObserver observer, String[] permissions) {
+            this.observer = observer;
+            this.permissions = permissions;
+        }
+
+        private boolean watches(String permission) {
+            for (String p : permissions) {
+                if (p.equals(permission)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void unsubscribe() {
+            PermissionJediWatcher.this.unsubscribe(this);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.kopirealm.permissionjedi;
+
+import android.Manifest;
+import android.app.Activity;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * {@link PermissionJedi#request()} through {@link PermissionJediCoalescer} with its default
+ * window, as callers get it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class PermissionJediCoalescerTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private Activity first;
+    private Activity second;
+    private SystemDialog dialog;
+
+    @Before
+    public void setUp() {
+        dialog = SystemDialog.install();
+        PermissionJedi.setCoalescingWindow(PermissionJediCoalescer.DEFAULT_WINDOW);
+        PermissionJedi.setDebounceWindow(0);
+        first = Robolectric.buildActivity(Activity.class).setup().get();
+        second = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    @After
+    public void tearDown() {
+        SystemDialog.uninstall();
+        PermissionJedi.setDebounceWindow(PermissionJediGate.DEFAULT_WINDOW);
+    }
+
+    @Test
+    public void requestWaitsForWindow() {
+        grant(Manifest.permission.CAMERA);
+        final Delegate delegate = new Delegate();
+        PermissionJedi.init(first).addPermissions(Manifest.permission.CAMERA).onResult(delegate).request();
+        assertEquals(null, shadowOf(first).getNextStartedActivity());
+
+        ShadowLooper.idleMainLooper(PermissionJediCoalescer.DEFAULT_WINDOW);
+        final Intent intent = shadowOf(first).getNextStartedActivity();
+        assertNotNull(intent);
+        Robolectric.buildActivity(PermissionJediActivity.class, intent).create();
+
+        assertTrue(delegate.result.isGranted(Manifest.permission.CAMERA));
+    }
+
+    @Test
+    public void requestsMergeAcrossActivities() {
+        grant(Manifest.permission.ACCESS_FINE_LOCATION);
+        shadowOf(RuntimeEnvironment.application).denyPermissions(Manifest.permission.READ_EXTERNAL_STORAGE, Manifest.permission.CAMERA);
+        final Delegate location = new Delegate();
+        final Delegate camera = new Delegate();
+        PermissionJedi.init(first)
+                .addPermissions(Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.READ_EXTERNAL_STORAGE)
+                .onResult(location)
+                .request();
+        PermissionJedi.init(second)
+                .addPermissions(Manifest.permission.READ_EXTERNAL_STORAGE, Manifest.permission.CAMERA)
+                .onResult(camera)
+                .request();
+        ShadowLooper.idleMainLooper(PermissionJediCoalescer.DEFAULT_WINDOW);
+
+        // One launch, hosted by the last caller still alive
+        final Intent intent = shadowOf(second).getNextStartedActivity();
+        assertNotNull(intent);
+        assertEquals(null, shadowOf(first).getNextStartedActivity());
+        assertEquals(second, hostOf(intent));
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+
+        assertTrue(dialog.isShown());
+        assertEquals(2, dialog.permissions.length);
+        assertTrue(Arrays.asList(dialog.permissions).contains(Manifest.permission.READ_EXTERNAL_STORAGE));
+        assertTrue(Arrays.asList(dialog.permissions).contains(Manifest.permission.CAMERA));
+        grant(Manifest.permission.READ_EXTERNAL_STORAGE);
+        final int[] grantResults = new int[dialog.permissions.length];
+        for (int i = 0; i < grantResults.length; i++) {
+            grantResults[i] = Manifest.permission.READ_EXTERNAL_STORAGE.equals(dialog.permissions[i])
+                    ? PackageManager.PERMISSION_GRANTED
+                    : PackageManager.PERMISSION_DENIED;
+        }
+        activity.onRequestPermissionsResult(dialog.requestCode, dialog.permissions, grantResults);
+
+        // Each caller only hears about what it asked for
+        assertEquals(2, location.result.size());
+        assertTrue(location.result.allGranted());
+        assertFalse(location.result.contains(Manifest.permission.CAMERA));
+        assertEquals(Arrays.asList(Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.READ_EXTERNAL_STORAGE), location.resolved);
+
+        assertEquals(2, camera.result.size());
+        assertTrue(camera.result.isGranted(Manifest.permission.READ_EXTERNAL_STORAGE));
+        assertFalse(camera.result.isGranted(Manifest.permission.CAMERA));
+        assertFalse(camera.result.contains(Manifest.permission.ACCESS_FINE_LOCATION));
+        assertEquals(2, camera.resolved.size());
+        assertFalse(camera.resolved.contains(Manifest.permission.ACCESS_FINE_LOCATION));
+    }
+
+    @Test
+    public void mergedRequestReportsWhatCallersHeld() {
+        grant(Manifest.permission.ACCESS_FINE_LOCATION);
+        shadowOf(RuntimeEnvironment.application).denyPermissions(Manifest.permission.CAMERA);
+        final Delegate location = new Delegate();
+        final Delegate camera = new Delegate();
+        PermissionJedi.init(first).addPermissions(Manifest.permission.ACCESS_FINE_LOCATION).onResult(location).request();
+        PermissionJedi.init(second).addPermissions(Manifest.permission.CAMERA).onResult(camera).request();
+        ShadowLooper.idleMainLooper(PermissionJediCoalescer.DEFAULT_WINDOW);
+        final Intent intent = shadowOf(second).getNextStartedActivity();
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+
+        // Only the camera goes to the dialog
+        assertEquals(Arrays.asList(Manifest.permission.CAMERA), Arrays.asList(dialog.permissions));
+        activity.onRequestPermissionsResult(dialog.requestCode, dialog.permissions, new int[]{PackageManager.PERMISSION_DENIED});
+
+        // Alone, this caller would have been granted all without a dialog
+        assertEquals(1, location.result.size());
+        assertTrue(location.result.allGranted());
+        assertTrue(location.result.isGranted(Manifest.permission.ACCESS_FINE_LOCATION));
+        assertEquals(Boolean.TRUE, location.result.toMap().get(Manifest.permission.ACCESS_FINE_LOCATION));
+        assertEquals(1, camera.result.size());
+        assertFalse(camera.result.isGranted(Manifest.permission.CAMERA));
+    }
+
+    @Test
+    public void mergedRequestSkipsFinishingHost() {
+        grant(Manifest.permission.CAMERA, Manifest.permission.RECORD_AUDIO);
+        final Delegate camera = new Delegate();
+        final Delegate audio = new Delegate();
+        PermissionJedi.init(first).addPermissions(Manifest.permission.CAMERA).onResult(camera).request();
+        PermissionJedi.init(second).addPermissions(Manifest.permission.RECORD_AUDIO).onResult(audio).request();
+        second.finish();
+        ShadowLooper.idleMainLooper(PermissionJediCoalescer.DEFAULT_WINDOW);
+
+        final Intent intent = shadowOf(first).getNextStartedActivity();
+        assertNotNull(intent);
+        assertEquals(null, shadowOf(second).getNextStartedActivity());
+        assertEquals(first, hostOf(intent));
+        Robolectric.buildActivity(PermissionJediActivity.class, intent).create();
+
+        assertEquals(1, camera.result.size());
+        assertTrue(camera.result.isGranted(Manifest.permission.CAMERA));
+    }
+
+    @Test
+    public void mergedRequestMovesOffDestroyedHost() {
+        shadowOf(RuntimeEnvironment.application).denyPermissions(Manifest.permission.CAMERA, Manifest.permission.RECORD_AUDIO);
+        final ActivityController<Activity> host = Robolectric.buildActivity(Activity.class).setup();
+        final Delegate camera = new Delegate();
+        final Delegate audio = new Delegate();
+        PermissionJedi.init(first).addPermissions(Manifest.permission.CAMERA).onResult(camera).request();
+        PermissionJedi.init(host.get()).addPermissions(Manifest.permission.RECORD_AUDIO).onResult(audio).request();
+        ShadowLooper.idleMainLooper(PermissionJediCoalescer.DEFAULT_WINDOW);
+        final Intent intent = shadowOf(first).getNextStartedActivity();
+        assertEquals(host.get(), hostOf(intent));
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+        assertTrue(dialog.isShown());
+
+        // The host goes away while the dialog is up, the other caller still waits for it
+        host.get().finish();
+        host.pause().stop().destroy();
+        assertEquals(first, hostOf(intent));
+        grant(Manifest.permission.CAMERA);
+        final int[] grantResults = new int[dialog.permissions.length];
+        for (int i = 0; i < grantResults.length; i++) {
+            grantResults[i] = Manifest.permission.CAMERA.equals(dialog.permissions[i])
+                    ? PackageManager.PERMISSION_GRANTED
+                    : PackageManager.PERMISSION_DENIED;
+        }
+        activity.onRequestPermissionsResult(dialog.requestCode, dialog.permissions, grantResults);
+
+        assertEquals(1, camera.result.size());
+        assertTrue(camera.result.isGranted(Manifest.permission.CAMERA));
+        assertEquals(null, audio.result);
+    }
+
+    @Test
+    public void mergedFuturesFailWithoutHost() {
+        final PermissionJediFuture<PermissionJediResult> camera = PermissionJedi.init(first).addPermissions(Manifest.permission.CAMERA).request(DIRECT);
+        final PermissionJediFuture<PermissionJediResult> audio = PermissionJedi.init(second).addPermissions(Manifest.permission.RECORD_AUDIO).request(DIRECT);
+        first.finish();
+        second.finish();
+        ShadowLooper.idleMainLooper(PermissionJediCoalescer.DEFAULT_WINDOW);
+
+        assertTrue(camera.isDone());
+        assertTrue(audio.isDone());
+    }
+
+    @Test
+    public void mergedFuturesFailWhenSessionCloses() {
+        shadowOf(RuntimeEnvironment.application).denyPermissions(Manifest.permission.CAMERA, Manifest.permission.RECORD_AUDIO);
+        final PermissionJediFuture<PermissionJediResult> camera = PermissionJedi.init(first).addPermissions(Manifest.permission.CAMERA).request(DIRECT);
+        final PermissionJediFuture<PermissionJediResult> audio = PermissionJedi.init(second).addPermissions(Manifest.permission.RECORD_AUDIO).request(DIRECT);
+        ShadowLooper.idleMainLooper(PermissionJediCoalescer.DEFAULT_WINDOW);
+        final Intent intent = shadowOf(second).getNextStartedActivity();
+
+        // The dialog is never answered
+        final ActivityController<PermissionJediActivity> host = Robolectric.buildActivity(PermissionJediActivity.class, intent).create();
+        host.get().finish();
+        host.destroy();
+
+        assertTrue(camera.isDone());
+        assertTrue(audio.isDone());
+    }
+
+    @Test
+    public void requestCancelledWithinWindow() {
+        grant(Manifest.permission.CAMERA);
+        final Delegate delegate = new Delegate();
+        final PermissionJedi jedi = PermissionJedi.init(first).addPermissions(Manifest.permission.CAMERA).onResult(delegate);
+        final PermissionJediFuture<PermissionJediResult> future = jedi.request(DIRECT);
+        assertTrue(jedi.cancel());
+        ShadowLooper.idleMainLooper(PermissionJediCoalescer.DEFAULT_WINDOW);
+
+        assertEquals(null, shadowOf(first).getNextStartedActivity());
+        assertTrue(future.isDone());
+        assertEquals(null, delegate.result);
+    }
+
+    @Test
+    public void mergedRequestGoesOnWithoutCancelledCaller() {
+        grant(Manifest.permission.ACCESS_FINE_LOCATION);
+        shadowOf(RuntimeEnvironment.application).denyPermissions(Manifest.permission.CAMERA, Manifest.permission.RECORD_AUDIO);
+        final Delegate location = new Delegate();
+        final Delegate camera = new Delegate();
+        final Delegate audio = new Delegate();
+        PermissionJedi.init(first).addPermissions(Manifest.permission.ACCESS_FINE_LOCATION).onResult(location).request();
+        ShadowLooper.idleMainLooper(PermissionJediCoalescer.DEFAULT_WINDOW);
+        final Intent running = shadowOf(first).getNextStartedActivity();
+        assertNotNull(running);
+
+        // Merged while the first flow is still up, so the merged one waits its turn
+        final PermissionJedi cancel = PermissionJedi.init(first).addPermissions(Manifest.permission.CAMERA).onResult(camera);
+        cancel.request();
+        PermissionJedi.init(second).addPermissions(Manifest.permission.RECORD_AUDIO).onResult(audio).request();
+        ShadowLooper.idleMainLooper(PermissionJediCoalescer.DEFAULT_WINDOW);
+        assertTrue(cancel.cancel());
+        assertFalse(cancel.cancel());
+
+        Robolectric.buildActivity(PermissionJediActivity.class, running).create();
+        ShadowLooper.idleMainLooper();
+        assertTrue(location.result.allGranted());
+        final Intent intent = shadowOf(second).getNextStartedActivity();
+        assertNotNull(intent);
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+
+        assertTrue(dialog.isShown());
+        assertEquals(Arrays.asList(Manifest.permission.RECORD_AUDIO), Arrays.asList(dialog.permissions));
+        activity.onRequestPermissionsResult(dialog.requestCode, dialog.permissions, new int[]{PackageManager.PERMISSION_DENIED});
+
+        assertFalse(audio.result.isGranted(Manifest.permission.RECORD_AUDIO));
+        assertEquals(null, camera.result);
+        assertTrue(camera.resolved.isEmpty());
+    }
+
+    /**
+     * Robolectric keeps one list of started activities per app, so ask the session who hosts it.
+     */
+    private static Activity hostOf(Intent intent) {
+        final PermissionJedi jedi = PermissionJediSessions.resolve(intent.getIntExtra(PermissionJediKit.EXTRA_SESSION_KEY, PermissionJediSessions.NO_SESSION));
+        assertNotNull(jedi);
+        return jedi.getActivity();
+    }
+
+    private static void grant(String... permissions) {
+        shadowOf(RuntimeEnvironment.application).grantPermissions(permissions);
+    }
+
+    private static final class Delegate implements PermissionJedi.PermissionJediProgressDelegate {
+        private final ArrayList<String> resolved = new ArrayList<>();
+        private PermissionJediResult result = null;
+
+        @Override
+        public void onPermissionResolved(@NonNull String permission, boolean granted) {
+            resolved.add(permission);
+        }
+
+        @Override
+        public void onPermissionReviewed(@NonNull PermissionJediResult result) {
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.kopirealm.permissionjedi;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Completion, chaining and cancellation of {@link PermissionJediFuture}, against an executor
+ * that only runs what it was handed when told to.
+ */
+public class PermissionJediFutureTest {
+
+    private final QueueExecutor executor = new QueueExecutor();
+
+    @Test
+    public void deliverHopsToExecutor() throws Exception {
+        final PermissionJediFuture<String> future = new PermissionJediFuture<>(executor);
+        final Recorder<String> recorder = new Recorder<>();
+        future.whenComplete(recorder);
+
+        assertTrue(future.deliver("granted"));
+        assertFalse(future.deliver("again"));
+        assertFalse(future.isDone());
+        executor.runAll();
+
+        assertTrue(future.isDone());
+        assertEquals("granted", future.get());
+        assertEquals("granted", recorder.value);
+    }
+
+    @Test
+    public void thenChainsOnExecutor() throws Exception {
+        final PermissionJediFuture<String> future = new PermissionJediFuture<>(executor);
+        final PermissionJediFuture<Integer> length = future.then(new PermissionJediFuture.Transform<String, Integer>() {
+            @Override
+            public Integer apply(String value) {
+                return value.length();
+            }
+        });
+        final PermissionJediFuture<Integer> broken = future.then(new PermissionJediFuture.Transform<String, Integer>() {
+            @Override
+            public Integer apply(String value) throws Exception {
+                throw new IllegalStateException(value);
+            }
+        });
+
+        future.complete("granted");
+        assertTrue(length.isDone());
+        assertEquals(Integer.valueOf(7), length.get());
+        try {
+            broken.get();
+            fail("transform failure not reported");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void failReportsCause() throws Exception {
+        final PermissionJediFuture<String> future = new PermissionJediFuture<>(executor);
+        final Recorder<String> recorder = new Recorder<>();
+        future.whenComplete(recorder);
+
+        assertTrue(future.fail(new IllegalArgumentException()));
+        executor.runAll();
+
+        assertTrue(recorder.failure instanceof IllegalArgumentException);
+        assertFalse(future.isCancelled());
+        try {
+            future.get();
+            fail("failure not reported");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void cancelSettlesBeforeReturning() throws Exception {
+        final PermissionJediFuture<String> future = new PermissionJediFuture<>(executor);
+        final Recorder<String> recorder = new Recorder<>();
+        future.whenComplete(recorder);
+
+        assertTrue(future.cancel(false));
+        assertTrue(future.isDone());
+        assertTrue(future.isCancelled());
+        assertFalse(future.deliver("late"));
+        try {
+            future.get(0, TimeUnit.MILLISECONDS);
+            fail("cancellation not reported");
+        } catch (CancellationException expected) {
+        }
+
+        // Only the callbacks wait for the executor
+        assertNull(recorder.failure);
+        executor.runAll();
+        assertTrue(recorder.failure instanceof CancellationException);
+    }
+
+    @Test
+    public void cancelAfterCompletionFails() throws Exception {
+        final PermissionJediFuture<String> future = new PermissionJediFuture<>(executor);
+        future.complete("granted");
+
+        assertFalse(future.cancel(true));
+        assertFalse(future.isCancelled());
+        assertEquals("granted", future.get());
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void getTimesOut() throws Exception {
+        new PermissionJediFuture<String>(executor).get(1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void whenCompleteAfterDoneRunsOnExecutor() {
+        final PermissionJediFuture<String> future = new PermissionJediFuture<>(executor);
+        future.complete("granted");
+        final Recorder<String> recorder = new Recorder<>();
+        future.whenComplete(recorder);
+
+        assertNull(recorder.value);
+        executor.runAll();
+        assertEquals("granted", recorder.value);
+    }
+
+    private static final class QueueExecutor implements Executor {
+        private final ArrayList<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            while (!queue.isEmpty()) {
+                queue.remove(0).run();
+            }
+        }
+    }
+
+    private static final class Recorder<V> implements PermissionJediFuture.Callback<V> {
+        private V value = null;
+        private Throwable failure = null;
+
+        @Override
+        public void onSuccess(V value) {
+            this.value = value;
+        }
+
+        @Override
+        public void onFailure(@NonNull Throwable t) {
+            this.failure = t;
+        }
+    }
+}
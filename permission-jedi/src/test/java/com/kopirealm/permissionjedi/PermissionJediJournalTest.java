@@ -0,0 +1,125 @@
+package com.kopirealm.permissionjedi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * File format, recovery and compaction of {@link PermissionJediJournal}.
+ */
+public class PermissionJediJournalTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String CAMERA = "android.permission.CAMERA";
+    private static final String AUDIO = "android.permission.RECORD_AUDIO";
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("permissionjedi", ".journal");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void recordsAreAppended() throws IOException {
+        final PermissionJediJournal journal = new PermissionJediJournal(file);
+        journal.record(CAMERA, PermissionJediJournal.ASKED);
+        journal.record(CAMERA, PermissionJediJournal.ASKED);
+        journal.record(CAMERA, PermissionJediJournal.DENIED_PERMANENTLY);
+        journal.flush();
+
+        // Outcome, name length, name; a repeated outcome is not written again
+        final byte[] name = CAMERA.getBytes(UTF_8);
+        final byte[] expected = new byte[2 * (2 + name.length)];
+        expected[0] = PermissionJediJournal.ASKED;
+        expected[1] = (byte) name.length;
+        System.arraycopy(name, 0, expected, 2, name.length);
+        expected[2 + name.length] = PermissionJediJournal.DENIED_PERMANENTLY;
+        expected[3 + name.length] = (byte) name.length;
+        System.arraycopy(name, 0, expected, 4 + name.length, name.length);
+        assertArrayEquals(expected, read());
+    }
+
+    @Test
+    public void latestRecordWinsOnLoad() {
+        final PermissionJediJournal journal = new PermissionJediJournal(file);
+        journal.record(CAMERA, PermissionJediJournal.ASKED);
+        journal.record(CAMERA, PermissionJediJournal.DENIED_PERMANENTLY);
+        journal.record(AUDIO, PermissionJediJournal.GRANTED);
+        journal.flush();
+
+        // Reading never waits for the load, so wait for it here
+        final PermissionJediJournal reloaded = new PermissionJediJournal(file);
+        reloaded.flush();
+        assertTrue(reloaded.isPermanentlyDenied(CAMERA));
+        assertEquals(PermissionJediJournal.GRANTED, reloaded.outcome(AUDIO));
+        assertEquals(PermissionJediJournal.NONE, reloaded.outcome("android.permission.READ_SMS"));
+    }
+
+    @Test
+    public void tornTailIsDropped() throws IOException {
+        final PermissionJediJournal journal = new PermissionJediJournal(file);
+        journal.record(CAMERA, PermissionJediJournal.DENIED);
+        journal.flush();
+        // An append cut short, its header promises more than was written
+        final FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[]{PermissionJediJournal.GRANTED, 40, 'a', 'n', 'd'});
+        out.close();
+
+        final PermissionJediJournal recovered = new PermissionJediJournal(file);
+
+        recovered.flush();
+        assertEquals(PermissionJediJournal.DENIED, recovered.outcome(CAMERA));
+        recovered.record(AUDIO, PermissionJediJournal.GRANTED);
+        recovered.flush();
+
+        // Records after the recovery are read back in step
+        final PermissionJediJournal reloaded = new PermissionJediJournal(file);
+        reloaded.flush();
+        assertEquals(PermissionJediJournal.DENIED, reloaded.outcome(CAMERA));
+        assertEquals(PermissionJediJournal.GRANTED, reloaded.outcome(AUDIO));
+    }
+
+    @Test
+    public void compactsOnceTooLarge() {
+        final PermissionJediJournal journal = new PermissionJediJournal(file);
+        for (int i = 0; i < 1000; i++) {
+            journal.record(CAMERA, (i % 2 == 0) ? PermissionJediJournal.DENIED : PermissionJediJournal.GRANTED);
+            journal.record(AUDIO, (i % 2 == 0) ? PermissionJediJournal.GRANTED : PermissionJediJournal.DENIED);
+        }
+        journal.flush();
+
+        assertTrue(file.length() < 16 * 1024);
+        final PermissionJediJournal reloaded = new PermissionJediJournal(file);
+        reloaded.flush();
+        assertEquals(PermissionJediJournal.GRANTED, reloaded.outcome(CAMERA));
+        assertEquals(PermissionJediJournal.DENIED, reloaded.outcome(AUDIO));
+    }
+
+    private byte[] read() throws IOException {
+        final RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            final byte[] bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+}
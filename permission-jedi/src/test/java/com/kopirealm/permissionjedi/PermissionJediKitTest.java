@@ -0,0 +1,83 @@
+package com.kopirealm.permissionjedi;
+
+import android.Manifest;
+import android.os.Parcel;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Parcel round trips of {@link PermissionJediKit}, the way it is saved with its host's state.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class PermissionJediKitTest {
+
+    private static final String CUSTOM = "com.example.permission.CUSTOM";
+
+    @Test
+    public void parcelRoundTrip() {
+        final PermissionJediKit kit = new PermissionJediKit();
+        kit.setAction(PermissionJedi.ACTION_REQUEST);
+        kit.setSessionId(42);
+        kit.setPermissions(new String[]{
+                PermissionJedi.permission.LOCAL_NOTIFICATION,
+                Manifest.permission.ACCESS_FINE_LOCATION,
+                Manifest.permission.CAMERA,
+                CUSTOM
+        });
+
+        final PermissionJediKit restored = roundTrip(kit);
+        assertEquals(PermissionJedi.ACTION_REQUEST, restored.getAction());
+        assertEquals(42, restored.getSessionId());
+        // Registry order, notification first, unknown ones last
+        assertArrayEquals(kit.getPermissions(), restored.getPermissions());
+    }
+
+    @Test
+    public void parcelKeepsUnknownAction() {
+        final PermissionJediKit kit = new PermissionJediKit();
+        kit.setAction("ACTION_CUSTOM");
+
+        final PermissionJediKit restored = roundTrip(kit);
+        assertEquals("ACTION_CUSTOM", restored.getAction());
+        assertEquals(0, restored.getPermissions().length);
+    }
+
+    @Test
+    public void parcelFromAnotherProcessDropsSession() {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            // As written by a process that died since, see writeToParcel()
+            parcel.writeInt(2);
+            parcel.writeInt(42);
+            parcel.writeLong(PermissionJediSessions.processToken() + 1);
+            parcel.writeLongArray(new long[0]);
+            parcel.writeStringArray(new String[]{CUSTOM});
+            parcel.setDataPosition(0);
+
+            final PermissionJediKit restored = PermissionJediKit.CREATOR.createFromParcel(parcel);
+            assertEquals(PermissionJediSessions.NO_SESSION, restored.getSessionId());
+            assertEquals(PermissionJedi.ACTION_REQUEST, restored.getAction());
+            assertArrayEquals(new String[]{CUSTOM}, restored.getPermissions());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static PermissionJediKit roundTrip(PermissionJediKit kit) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            kit.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return PermissionJediKit.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.kopirealm.permissionjedi;
+
+import android.app.Activity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Foreground tracking of {@link PermissionJediLifecycle}, whatever point of the caller's
+ * lifecycle it gets installed from.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class PermissionJediLifecycleTest {
+
+    private int foregrounds;
+    private final PermissionJediLifecycle.Listener listener = new PermissionJediLifecycle.Listener() {
+        @Override
+        public void onForeground() {
+            foregrounds++;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        foregrounds = 0;
+    }
+
+    @Test
+    public void installedFromOnCreate() {
+        final ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).create();
+        final PermissionJediLifecycle lifecycle = PermissionJediLifecycle.install(controller.get());
+        lifecycle.addListener(listener);
+
+        controller.start();
+        assertTrue(lifecycle.isForeground());
+        controller.stop();
+        assertFalse(lifecycle.isForeground());
+        controller.start();
+        assertTrue(lifecycle.isForeground());
+        assertEquals(1, foregrounds);
+    }
+
+    @Test
+    public void installedWhileResumed() {
+        final ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).setup();
+        final PermissionJediLifecycle lifecycle = PermissionJediLifecycle.install(controller.get());
+        lifecycle.addListener(listener);
+
+        controller.pause().stop();
+        assertFalse(lifecycle.isForeground());
+        controller.start();
+        assertEquals(1, foregrounds);
+    }
+
+    @Test
+    public void firstActivityIsNotAReturn() {
+        // As from Application.onCreate(), e.g. by prewarm()
+        final PermissionJediLifecycle lifecycle = PermissionJediLifecycle.install(RuntimeEnvironment.application);
+        lifecycle.addListener(listener);
+
+        final ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).setup();
+        assertTrue(lifecycle.isForeground());
+        assertEquals(0, foregrounds);
+        controller.pause().stop();
+        controller.start();
+        assertEquals(1, foregrounds);
+    }
+
+    @Test
+    public void finishedBeforeStart() {
+        final ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).create();
+        final PermissionJediLifecycle lifecycle = PermissionJediLifecycle.install(controller.get());
+        lifecycle.addListener(listener);
+
+        controller.destroy();
+        assertFalse(lifecycle.isForeground());
+        Robolectric.buildActivity(Activity.class).setup();
+        assertEquals(1, foregrounds);
+    }
+}
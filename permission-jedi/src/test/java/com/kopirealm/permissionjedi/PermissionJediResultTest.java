@@ -0,0 +1,177 @@
+package com.kopirealm.permissionjedi;
+
+import android.content.pm.PackageManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cursor walks of {@link PermissionJediResult} over its registry bitsets and the permissions
+ * the registry does not know.
+ */
+public class PermissionJediResultTest {
+
+    private static final String CUSTOM_GRANTED = "com.example.permission.GRANTED";
+    private static final String CUSTOM_DENIED = "com.example.permission.DENIED";
+
+    private PermissionJediRegistry registry;
+    private int registered;
+    // Registry permissions on both sides of the first two word boundaries
+    private String first;
+    private String lastOfWord;
+    private String firstOfWord;
+    private String last;
+
+    @Before
+    public void setUp() {
+        registry = PermissionJediRegistry.get();
+        registered = registry.size();
+        assertTrue("registry too small to cross words", registered > 128);
+        first = registry.permissionAt(1);
+        lastOfWord = registry.permissionAt(63);
+        firstOfWord = registry.permissionAt(64);
+        last = registry.permissionAt(registered - 1);
+    }
+
+    @Test
+    public void walksAcrossWords() {
+        final PermissionJediResult result = new PermissionJediResult.Builder()
+                .put(last, false)
+                .put(firstOfWord, true)
+                .put(lastOfWord, false)
+                .put(first, true)
+                .put(CUSTOM_GRANTED, true)
+                .put(CUSTOM_DENIED, false)
+                .build();
+
+        assertEquals(Arrays.asList(1, 63, 64, registered - 1, registered, registered + 1), walk(result, 0));
+        assertEquals(Arrays.asList(1, 64, registered), walk(result, 1));
+        assertEquals(Arrays.asList(63, registered - 1, registered + 1), walk(result, 2));
+        assertEquals(64, result.nextPermission(64));
+        assertEquals(registered - 1, result.nextPermission(65));
+        assertEquals(-1, result.nextPermission(registered + 2));
+        assertEquals(6, result.size());
+        assertFalse(result.allGranted());
+    }
+
+    @Test
+    public void unregisteredPermissions() {
+        final PermissionJediResult result = new PermissionJediResult.Builder()
+                .put(CUSTOM_DENIED, true)
+                .put(CUSTOM_DENIED, false)
+                .put(CUSTOM_GRANTED, true)
+                .build();
+
+        assertEquals(2, result.size());
+        assertTrue(result.contains(CUSTOM_DENIED));
+        assertFalse(result.isGranted(CUSTOM_DENIED));
+        assertTrue(result.isGranted(CUSTOM_GRANTED));
+        assertFalse(result.contains(first));
+        assertEquals(CUSTOM_DENIED, result.permissionAt(result.nextDenied(0)));
+        assertEquals(CUSTOM_GRANTED, result.permissionAt(result.nextGranted(0)));
+        assertEquals(-1, result.nextGranted(result.nextGranted(0) + 1));
+    }
+
+    @Test
+    public void walksChangesAgainstBaseline() {
+        final PermissionJediResult before = new PermissionJediResult.Builder()
+                .put(first, false)
+                .put(lastOfWord, true)
+                .put(firstOfWord, true)
+                .put(CUSTOM_GRANTED, false)
+                .build();
+        final PermissionJediResult after = new PermissionJediResult.Builder()
+                .baseline(before)
+                .put(first, true)
+                .put(lastOfWord, false)
+                .put(firstOfWord, true)
+                .put(CUSTOM_GRANTED, true)
+                .build();
+
+        assertTrue(after.hasBaseline());
+        assertEquals(Arrays.asList(1, registered), walk(after, 3));
+        assertEquals(Arrays.asList(63), walk(after, 4));
+        assertEquals(Arrays.asList(64), walk(after, 5));
+        assertTrue(after.isNewlyGranted(first));
+        assertTrue(after.isNewlyDenied(lastOfWord));
+        assertFalse(after.isNewlyGranted(firstOfWord));
+
+        assertFalse(before.hasBaseline());
+        assertEquals(-1, before.nextNewlyGranted(0));
+        assertEquals(-1, before.nextUnchanged(0));
+    }
+
+    @Test
+    public void subsetKeepsOnlyReviewed() {
+        final PermissionJediResult before = new PermissionJediResult.Builder()
+                .put(firstOfWord, false)
+                .build();
+        final PermissionJediResult result = new PermissionJediResult.Builder()
+                .timedOut(true)
+                .baseline(before)
+                .put(first, true)
+                .put(firstOfWord, true)
+                .put(CUSTOM_DENIED, false)
+                .build();
+
+        final PermissionJediResult subset = result.subset(firstOfWord, CUSTOM_DENIED, last);
+        assertEquals(2, subset.size());
+        assertFalse(subset.contains(first));
+        assertFalse(subset.contains(last));
+        assertTrue(subset.isGranted(firstOfWord));
+        assertTrue(subset.contains(CUSTOM_DENIED));
+        assertTrue(subset.isTimedOut());
+        assertTrue(subset.isNewlyGranted(firstOfWord));
+    }
+
+    @Test
+    public void matchesLegacyMap() {
+        final PermissionJediResult result = PermissionJediResult.fromGrantResults(
+                new String[]{first, lastOfWord, CUSTOM_GRANTED},
+                new int[]{PackageManager.PERMISSION_GRANTED, PackageManager.PERMISSION_DENIED, PackageManager.PERMISSION_GRANTED});
+
+        assertEquals(3, result.toMap().size());
+        assertEquals(Boolean.TRUE, result.toMap().get(first));
+        assertEquals(Boolean.FALSE, result.toMap().get(lastOfWord));
+        assertEquals(Boolean.TRUE, result.toMap().get(CUSTOM_GRANTED));
+        assertEquals(result, new PermissionJediResult.Builder().putAll(result).build());
+        assertTrue(PermissionJediResult.EMPTY.allGranted());
+        assertEquals(-1, PermissionJediResult.EMPTY.nextPermission(0));
+    }
+
+    /**
+     * @param walk 0 reviewed, 1 granted, 2 denied, 3 newly granted, 4 newly denied, 5 unchanged
+     */
+    private static List<Integer> walk(PermissionJediResult result, int walk) {
+        final ArrayList<Integer> cursors = new ArrayList<>();
+        for (int i = next(result, walk, 0); i >= 0; i = next(result, walk, i + 1)) {
+            cursors.add(i);
+        }
+        return cursors;
+    }
+
+    private static int next(PermissionJediResult result, int walk, int from) {
+        switch (walk) {
+            case 1:
+                return result.nextGranted(from);
+            case 2:
+                return result.nextDenied(from);
+            case 3:
+                return result.nextNewlyGranted(from);
+            case 4:
+                return result.nextNewlyDenied(from);
+            case 5:
+                return result.nextUnchanged(from);
+            default:
+                return result.nextPermission(from);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.kopirealm.permissionjedi;
+
+import android.Manifest;
+import android.app.Activity;
+import android.content.Intent;
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Proves that no calling Activity outlives its session, even when its delegate holds on to it
+ * the way an anonymous inner class does.
+ */
+@RunWith(RobolectricTestRunner.class)
+// Robolectric 3.8 attaches every Activity to the Application's own context, which from API 26
+// holds on to the last one as its autofill client; and it never takes a visible Activity's
+// window down, so callers here are never made visible
+@Config(sdk = 25)
+public class PermissionJediRetentionTest {
+
+    private static final String[] PERMISSIONS = new String[]{
+            Manifest.permission.ACCESS_FINE_LOCATION,
+            Manifest.permission.READ_EXTERNAL_STORAGE
+    };
+
+    @Before
+    public void setUp() {
+        PermissionJedi.setCoalescingWindow(0);
+    }
+
+    @After
+    public void tearDown() {
+        PermissionJedi.setCoalescingWindow(PermissionJediCoalescer.DEFAULT_WINDOW);
+    }
+
+    @Test
+    public void callerDestroyedMidSessionIsReleased() throws InterruptedException {
+        ActivityController<Activity> caller = Robolectric.buildActivity(Activity.class).create().start().resume();
+        final WeakReference<Activity> reference = new WeakReference<>(caller.get());
+        PermissionJedi.init(caller.get())
+                .addPermissions(PERMISSIONS)
+                .onResult(new RetainingDelegate(caller.get()))
+                .request();
+
+        // PermissionJediActivity never gets to run, the session is still open
+        caller.pause().stop().destroy();
+        caller = null;
+
+        assertCollected(reference);
+    }
+
+    @Test
+    public void callerOfCompletedSessionIsReleased() throws InterruptedException {
+        shadowOf(RuntimeEnvironment.application).grantPermissions(PERMISSIONS);
+        ActivityController<Activity> caller = Robolectric.buildActivity(Activity.class).create().start().resume();
+        final WeakReference<Activity> reference = new WeakReference<>(caller.get());
+        final RetainingDelegate delegate = new RetainingDelegate(caller.get());
+        PermissionJedi.init(caller.get())
+                .addPermissions(PERMISSIONS)
+                .onResult(delegate)
+                .request();
+        final Intent intent = shadowOf(caller.get()).getNextStartedActivity();
+        Robolectric.buildActivity(PermissionJediActivity.class, intent).create().destroy();
+        assertNotNull(delegate.result);
+
+        delegate.caller = null;
+        caller.pause().stop().destroy();
+        caller = null;
+
+        assertCollected(reference);
+    }
+
+    private static void assertCollected(WeakReference<Activity> reference) throws InterruptedException {
+        for (int i = 0; i < 20 && reference.get() != null; i++) {
+            System.gc();
+            System.runFinalization();
+            Thread.sleep(10);
+        }
+        assertNull("Activity outlived its session", reference.get());
+    }
+
+    private static final class RetainingDelegate implements PermissionJedi.PermissionJediResultDelegate {
+        private Activity caller;
+        private PermissionJediResult result = null;
+
+        private RetainingDelegate(Activity caller) {
+            this.caller = caller;
+        }
+
+        @Override
+        public void onPermissionReviewed(@NonNull PermissionJediResult result) {
+            this.result = result;
+        }
+    }
+}
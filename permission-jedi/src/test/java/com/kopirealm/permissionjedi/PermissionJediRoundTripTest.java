@@ -0,0 +1,410 @@
+package com.kopirealm.permissionjedi;
+
+import android.Manifest;
+import android.app.Activity;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowActivity;
+import org.robolectric.shadows.ShadowApplication;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Drives every action from {@link PermissionJedi#init(Activity)} through
+ * {@link PermissionJediActivity} to the delegate, with shadowed grant results, and holds each
+ * phase to its budget.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class PermissionJediRoundTripTest {
+
+    private static final String[] PERMISSIONS = new String[]{
+            Manifest.permission.ACCESS_FINE_LOCATION,
+            Manifest.permission.READ_EXTERNAL_STORAGE
+    };
+
+    private final RoundTripPhases phases = new RoundTripPhases();
+    private final Delegate delegate = new Delegate();
+    private Activity caller;
+    private SystemDialog dialog;
+
+    @Before
+    public void setUp() {
+        dialog = SystemDialog.install();
+        PermissionJedi.setCoalescingWindow(0);
+        PermissionJedi.setDebounceWindow(0);
+        caller = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    @After
+    public void tearDown() {
+        SystemDialog.uninstall();
+        PermissionJedi.setCoalescingWindow(PermissionJediCoalescer.DEFAULT_WINDOW);
+        PermissionJedi.setDebounceWindow(PermissionJediGate.DEFAULT_WINDOW);
+    }
+
+    @Test
+    public void checkInline() {
+        grant(PERMISSIONS);
+        phases.begin("check.inline");
+        PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(delegate).checkNow();
+        phases.end();
+
+        assertTrue(delegate.result.allGranted());
+        phases.assertWithinBudget();
+    }
+
+    @Test
+    public void requestAlreadyGranted() {
+        grant(PERMISSIONS);
+        phases.begin("request.launch");
+        PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(delegate).request();
+        final Intent intent = shadowOf(caller).getNextStartedActivity();
+        phases.end();
+
+        phases.begin("request.activity");
+        Robolectric.buildActivity(PermissionJediActivity.class, intent).create();
+        phases.end();
+
+        assertEquals(PERMISSIONS.length, delegate.result.size());
+        assertTrue(delegate.result.allGranted());
+        phases.assertWithinBudget();
+    }
+
+    @Test
+    public void requestThroughSystemDialog() {
+        shadowOf(RuntimeEnvironment.application).denyPermissions(PERMISSIONS);
+        phases.begin("request.launch");
+        PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(delegate).request();
+        final Intent intent = shadowOf(caller).getNextStartedActivity();
+        phases.end();
+
+        phases.begin("request.activity");
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+        phases.end();
+
+        assertTrue(dialog.isShown());
+        final int[] grantResults = new int[dialog.permissions.length];
+        for (int i = 0; i < grantResults.length; i++) {
+            grantResults[i] = Manifest.permission.ACCESS_FINE_LOCATION.equals(dialog.permissions[i])
+                    ? PackageManager.PERMISSION_GRANTED
+                    : PackageManager.PERMISSION_DENIED;
+        }
+        phases.begin("request.result");
+        activity.onRequestPermissionsResult(dialog.requestCode, dialog.permissions, grantResults);
+        phases.end();
+
+        assertTrue(delegate.result.isGranted(Manifest.permission.ACCESS_FINE_LOCATION));
+        assertFalse(delegate.result.isGranted(Manifest.permission.READ_EXTERNAL_STORAGE));
+        phases.assertWithinBudget();
+    }
+
+    @Test
+    @Config(sdk = 25)
+    public void requestOncePerGroup() {
+        final String[] grouped = new String[]{
+                Manifest.permission.ACCESS_FINE_LOCATION,
+                Manifest.permission.ACCESS_COARSE_LOCATION,
+                Manifest.permission.WRITE_EXTERNAL_STORAGE,
+                Manifest.permission.READ_EXTERNAL_STORAGE
+        };
+        shadowOf(RuntimeEnvironment.application).denyPermissions(grouped);
+        PermissionJedi.init(caller).addPermissions(grouped).onResult(delegate).request();
+        final Intent intent = shadowOf(caller).getNextStartedActivity();
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+
+        assertTrue(dialog.isShown());
+        assertEquals(2, dialog.permissions.length);
+        // The platform grants the whole group
+        grant(grouped);
+        final int[] grantResults = new int[dialog.permissions.length];
+        activity.onRequestPermissionsResult(dialog.requestCode, dialog.permissions, grantResults);
+
+        assertEquals(grouped.length, delegate.result.size());
+        assertTrue(delegate.result.allGranted());
+    }
+
+    @Test
+    public void requestStreamsProgress() {
+        grant(Manifest.permission.ACCESS_FINE_LOCATION);
+        shadowOf(RuntimeEnvironment.application).denyPermissions(Manifest.permission.READ_EXTERNAL_STORAGE);
+        final ArrayList<String> resolved = new ArrayList<>();
+        PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(new PermissionJedi.PermissionJediProgressDelegate() {
+            @Override
+            public void onPermissionResolved(@NonNull String permission, boolean granted) {
+                resolved.add(permission);
+            }
+
+            @Override
+            public void onPermissionReviewed(@NonNull PermissionJediResult result) {
+                delegate.onPermissionReviewed(result);
+            }
+        }).request();
+        final Intent intent = shadowOf(caller).getNextStartedActivity();
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+
+        // Known while the dialog is still up
+        assertEquals(1, resolved.size());
+        assertEquals(Manifest.permission.ACCESS_FINE_LOCATION, resolved.get(0));
+        assertEquals(null, delegate.result);
+
+        assertTrue(dialog.isShown());
+        activity.onRequestPermissionsResult(dialog.requestCode, dialog.permissions, new int[]{PackageManager.PERMISSION_DENIED});
+
+        assertEquals(2, resolved.size());
+        assertEquals(Manifest.permission.READ_EXTERNAL_STORAGE, resolved.get(1));
+        assertFalse(delegate.result.isGranted(Manifest.permission.READ_EXTERNAL_STORAGE));
+    }
+
+    @Test
+    public void requestNotifiesObservers() {
+        shadowOf(RuntimeEnvironment.application).denyPermissions(Manifest.permission.CAMERA);
+        final ArrayList<String> changed = new ArrayList<>();
+        final PermissionJedi.Subscription subscription = PermissionJedi.observe(caller, new PermissionJedi.PermissionJediObserver() {
+            @Override
+            public void onPermissionChanged(@NonNull String permission, boolean granted) {
+                changed.add(permission);
+            }
+        }, Manifest.permission.CAMERA);
+        PermissionJedi.init(caller).addPermissions(Manifest.permission.CAMERA).onResult(delegate).request();
+        final Intent intent = shadowOf(caller).getNextStartedActivity();
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+
+        // The app never leaves the foreground while the dialog is up
+        grant(Manifest.permission.CAMERA);
+        assertTrue(dialog.isShown());
+        activity.onRequestPermissionsResult(dialog.requestCode, dialog.permissions, new int[]{PackageManager.PERMISSION_GRANTED});
+        ShadowLooper.idleMainLooper();
+        subscription.unsubscribe();
+
+        assertEquals(1, changed.size());
+        assertEquals(Manifest.permission.CAMERA, changed.get(0));
+    }
+
+    @Test
+    public void requestHeadless() {
+        grant(PERMISSIONS);
+        phases.begin("headless.request");
+        PermissionJedi.init(caller).headless().addPermissions(PERMISSIONS).onResult(delegate).request();
+        caller.getFragmentManager().executePendingTransactions();
+        phases.end();
+
+        assertEquals(PERMISSIONS.length, delegate.result.size());
+        assertTrue(delegate.result.allGranted());
+        assertEquals(null, shadowOf(caller).getNextStartedActivity());
+        phases.assertWithinBudget();
+    }
+
+    @Test
+    public void requestDebounced() {
+        grant(PERMISSIONS);
+        PermissionJedi.setDebounceWindow(PermissionJediGate.DEFAULT_WINDOW);
+        final Delegate duplicate = new Delegate();
+        PermissionJedi.init(caller).headless().addPermissions(PERMISSIONS).onResult(delegate).request();
+        PermissionJedi.init(caller).headless().addPermissions(PERMISSIONS).onResult(duplicate).request();
+        caller.getFragmentManager().executePendingTransactions();
+
+        assertTrue(delegate.result.allGranted());
+        assertEquals(delegate.result, duplicate.result);
+    }
+
+    @Test
+    public void requestDebouncedWhileQueued() {
+        grant(PERMISSIONS);
+        grant(Manifest.permission.CAMERA);
+        PermissionJedi.setDebounceWindow(PermissionJediGate.DEFAULT_WINDOW);
+        final Delegate tap = new Delegate();
+        final Delegate again = new Delegate();
+        PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(delegate).request();
+        PermissionJedi.init(caller).addPermissions(Manifest.permission.CAMERA).onResult(tap).request();
+        PermissionJedi.init(caller).addPermissions(Manifest.permission.CAMERA).onResult(again).request();
+        final Intent first = shadowOf(caller).getNextStartedActivity();
+
+        Robolectric.buildActivity(PermissionJediActivity.class, first).create();
+        ShadowLooper.idleMainLooper();
+        final Intent second = shadowOf(caller).getNextStartedActivity();
+        assertNotNull(second);
+        Robolectric.buildActivity(PermissionJediActivity.class, second).create();
+        ShadowLooper.idleMainLooper();
+
+        // Both taps were answered by the one session
+        assertEquals(null, shadowOf(caller).getNextStartedActivity());
+        assertTrue(tap.result.isGranted(Manifest.permission.CAMERA));
+        assertEquals(tap.result, again.result);
+    }
+
+    @Test
+    public void requestDebouncedOutlivesLeader() {
+        grant(PERMISSIONS);
+        PermissionJedi.setDebounceWindow(PermissionJediGate.DEFAULT_WINDOW);
+        final ActivityController<Activity> leader = Robolectric.buildActivity(Activity.class).setup();
+        final Delegate gone = new Delegate();
+        PermissionJedi.init(leader.get()).addPermissions(PERMISSIONS).onResult(gone).request();
+        PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(delegate).request();
+        assertNotNull(shadowOf(caller).getNextStartedActivity());
+
+        // The leader's Activity goes away before its session was answered
+        leader.get().finish();
+        leader.pause().stop().destroy();
+        ShadowLooper.idleMainLooper();
+
+        // The follower takes over and launches on its own
+        final Intent intent = shadowOf(caller).getNextStartedActivity();
+        assertNotNull(intent);
+        final PermissionJedi jedi = PermissionJediSessions.resolve(intent.getIntExtra(PermissionJediKit.EXTRA_SESSION_KEY, PermissionJediSessions.NO_SESSION));
+        assertNotNull(jedi);
+        assertEquals(caller, jedi.getActivity());
+        Robolectric.buildActivity(PermissionJediActivity.class, intent).create();
+
+        assertTrue(delegate.result.allGranted());
+        assertEquals(null, gone.result);
+    }
+
+    @Test
+    public void requestsRunOneAtATime() {
+        grant(PERMISSIONS);
+        grant(Manifest.permission.CAMERA);
+        final Delegate queued = new Delegate();
+        final Delegate cancelled = new Delegate();
+        PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(delegate).request();
+        PermissionJedi.init(caller).addPermissions(Manifest.permission.CAMERA).onResult(queued).request();
+        final PermissionJedi cancel = PermissionJedi.init(caller).addPermissions(Manifest.permission.RECORD_AUDIO).onResult(cancelled);
+        cancel.request();
+        final Intent first = shadowOf(caller).getNextStartedActivity();
+        assertNotNull(first);
+        assertEquals(null, shadowOf(caller).getNextStartedActivity());
+        assertTrue(cancel.cancel());
+
+        Robolectric.buildActivity(PermissionJediActivity.class, first).create();
+        ShadowLooper.idleMainLooper();
+        assertTrue(delegate.result.allGranted());
+        final Intent second = shadowOf(caller).getNextStartedActivity();
+        assertNotNull(second);
+        Robolectric.buildActivity(PermissionJediActivity.class, second).create();
+        ShadowLooper.idleMainLooper();
+
+        assertNotNull(queued.result);
+        assertEquals(null, cancelled.result);
+        assertEquals(null, shadowOf(caller).getNextStartedActivity());
+    }
+
+    @Test
+    public void revokeByPolicy() {
+        phases.begin("revoke.launch");
+        PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(delegate).isPermissionRevokedByPolicy();
+        final Intent intent = shadowOf(caller).getNextStartedActivity();
+        phases.end();
+
+        phases.begin("revoke.activity");
+        Robolectric.buildActivity(PermissionJediActivity.class, intent).create();
+        phases.end();
+
+        assertEquals(PERMISSIONS.length, delegate.result.size());
+        phases.assertWithinBudget();
+    }
+
+    @Test
+    public void appPermissionsSettings() {
+        settingsRoundTrip(PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(delegate), false);
+        assertEquals(PERMISSIONS.length, delegate.result.size());
+    }
+
+    @Test
+    public void notificationsSettings() {
+        settingsRoundTrip(PermissionJedi.init(caller).onResult(delegate), true);
+        assertTrue(delegate.result.contains(PermissionJedi.permission.LOCAL_NOTIFICATION));
+    }
+
+    @Test
+    public void settingsReturnsChanges() {
+        shadowOf(RuntimeEnvironment.application).denyPermissions(PERMISSIONS);
+        PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(delegate).gotoAppPermissionsSettings();
+        final Intent intent = shadowOf(caller).getNextStartedActivity();
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+        final ShadowActivity.IntentForResult settings = shadowOf(activity).getNextStartedActivityForResult();
+
+        // The user enables one permission in settings
+        grant(Manifest.permission.ACCESS_FINE_LOCATION);
+        shadowOf(activity).receiveResult(settings.intent, Activity.RESULT_CANCELED, null);
+
+        assertTrue(delegate.result.hasBaseline());
+        assertTrue(delegate.result.isNewlyGranted(Manifest.permission.ACCESS_FINE_LOCATION));
+        assertFalse(delegate.result.isNewlyGranted(Manifest.permission.READ_EXTERNAL_STORAGE));
+        final int unchanged = delegate.result.nextUnchanged(0);
+        assertEquals(Manifest.permission.READ_EXTERNAL_STORAGE, delegate.result.permissionAt(unchanged));
+        assertEquals(-1, delegate.result.nextUnchanged(unchanged + 1));
+    }
+
+    @Test
+    public void settingsAbandoned() {
+        grant(PERMISSIONS);
+        PermissionJedi.init(caller).addPermissions(PERMISSIONS).onResult(delegate).timeout(1000).gotoAppPermissionsSettings();
+        final Intent intent = shadowOf(caller).getNextStartedActivity();
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+        assertNotNull(shadowOf(activity).getNextStartedActivityForResult());
+        assertEquals(null, delegate.result);
+
+        // The user never comes back from settings
+        ShadowLooper.idleMainLooper(1000);
+
+        assertTrue(delegate.result.isTimedOut());
+        assertTrue(delegate.result.allGranted());
+        assertTrue(activity.isFinishing());
+    }
+
+    private void settingsRoundTrip(PermissionJedi jedi, boolean notifications) {
+        grant(PERMISSIONS);
+        phases.begin("settings.launch");
+        if (notifications) {
+            jedi.gotoNotificationsSettings();
+        } else {
+            jedi.gotoAppPermissionsSettings();
+        }
+        final Intent intent = shadowOf(caller).getNextStartedActivity();
+        phases.end();
+
+        phases.begin("settings.activity");
+        final PermissionJediActivity activity = Robolectric.buildActivity(PermissionJediActivity.class, intent).create().get();
+        phases.end();
+
+        final ShadowActivity.IntentForResult settings = shadowOf(activity).getNextStartedActivityForResult();
+        assertNotNull(settings);
+        phases.begin("settings.result");
+        shadowOf(activity).receiveResult(settings.intent, Activity.RESULT_CANCELED, null);
+        phases.end();
+
+        phases.assertWithinBudget();
+    }
+
+    private static void grant(String... permissions) {
+        final ShadowApplication application = shadowOf(RuntimeEnvironment.application);
+        application.grantPermissions(permissions);
+    }
+
+    private static final class Delegate implements PermissionJedi.PermissionJediResultDelegate {
+        private PermissionJediResult result = null;
+
+        @Override
+        public void onPermissionReviewed(@NonNull PermissionJediResult result) {
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.kopirealm.permissionjedi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records wall time and bytes allocated by the test thread for each phase of a round trip, and
+ * checks them against permission-jedi-budget.properties.
+ */
+final class RoundTripPhases {
+
+    private static final String BUDGET_FILE = "/permission-jedi-budget.properties";
+    private static final String BUDGET_PROPERTY = "permissionjedi.budget.";
+    private static final Properties budgets = new Properties();
+
+    static {
+        final InputStream in = RoundTripPhases.class.getResourceAsStream(BUDGET_FILE);
+        try {
+            if (in != null) {
+                budgets.load(in);
+                in.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private final LinkedHashMap<String, long[]> phases = new LinkedHashMap<>();
+    private String phase = null;
+    private long startNanos;
+    private long startBytes;
+
+    void begin(String phase) {
+        this.phase = phase;
+        this.startBytes = allocatedBytes();
+        this.startNanos = System.nanoTime();
+    }
+
+    void end() {
+        final long nanos = System.nanoTime() - startNanos;
+        final long bytes = allocatedBytes();
+        phases.put(phase, new long[]{nanos, (bytes < 0 || startBytes < 0) ? -1 : bytes - startBytes});
+        phase = null;
+    }
+
+    void assertWithinBudget() {
+        for (Map.Entry<String, long[]> entry : phases.entrySet()) {
+            final String name = entry.getKey();
+            final long millis = entry.getValue()[0] / 1000000L;
+            final long bytes = entry.getValue()[1];
+            final long millisBudget = budget(name + ".millis");
+            final long bytesBudget = budget(name + ".bytes");
+            if (millisBudget >= 0) {
+                assertTrue(name + " took " + millis + " ms, budget " + millisBudget + " ms", millis <= millisBudget);
+            }
+            if (bytesBudget >= 0 && bytes >= 0) {
+                assertTrue(name + " allocated " + bytes + " bytes, budget " + bytesBudget + " bytes", bytes <= bytesBudget);
+            }
+        }
+    }
+
+    private static long budget(String key) {
+        final String value = System.getProperty(BUDGET_PROPERTY + key, budgets.getProperty(key));
+        return (value == null) ? -1 : Long.parseLong(value.trim());
+    }
+
+    private static long allocatedBytes() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,42 @@
+package com.kopirealm.permissionjedi;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.support.v4.app.ActivityCompat;
+
+/**
+ * Stands in for the system permission dialog: records what was asked so a test can answer it
+ * through {@link PermissionJediActivity#onRequestPermissionsResult}. Robolectric 3.8 drops
+ * {@code Activity.requestPermissions()} without a trace.
+ */
+final class SystemDialog implements ActivityCompat.PermissionCompatDelegate {
+
+    String[] permissions = null;
+    int requestCode = -1;
+
+    static SystemDialog install() {
+        final SystemDialog dialog = new SystemDialog();
+        ActivityCompat.setPermissionCompatDelegate(dialog);
+        return dialog;
+    }
+
+    static void uninstall() {
+        ActivityCompat.setPermissionCompatDelegate(null);
+    }
+
+    boolean isShown() {
+        return permissions != null;
+    }
+
+    @Override
+    public boolean requestPermissions(Activity activity, String[] permissions, int requestCode) {
+        this.permissions = permissions;
+        this.requestCode = requestCode;
+        return true;
+    }
+
+    @Override
+    public boolean onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
+        return false;
+    }
+}